@@ -0,0 +1,84 @@
+package com.yigit.web;
+
+import io.cucumber.spring.ScenarioScope;
+import io.restassured.response.Response;
+import io.restassured.response.ResponseOptions;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of one scenario. Every scenario which calls the API gets an application of its own on a
+ * random port, started on first use and closed when the scenario ends, so scenarios running in
+ * parallel never see each other's books. The application keeps no id state file and no journal,
+ * so nothing is shared through the disk either.
+ */
+@Component
+@ScenarioScope
+public class ScenarioContext {
+
+    private ConfigurableApplicationContext application;
+    private ResponseOptions<Response> response;
+    private final List<String> properties = new ArrayList<>();
+
+    /**
+     * @param property name=value of a property the application of this scenario starts with
+     */
+    public synchronized void addProperty(String property) {
+        if (application != null) {
+            throw new IllegalStateException("The application of this scenario already runs, " + property + " comes too late");
+        }
+        properties.add("--" + property);
+    }
+
+    /**
+     * @return port of the application of this scenario
+     */
+    public int getPort() {
+        return ((WebServerApplicationContext) application()).getWebServer().getPort();
+    }
+
+    /**
+     * @param type type of the bean
+     * @param <T>  type of the bean
+     * @return bean of the application of this scenario
+     */
+    public <T> T getBean(Class<T> type) {
+        return application().getBean(type);
+    }
+
+    public ResponseOptions<Response> getResponse() {
+        return response;
+    }
+
+    public void setResponse(ResponseOptions<Response> response) {
+        this.response = response;
+    }
+
+    private synchronized ConfigurableApplicationContext application() {
+        if (application == null) {
+            List<String> args = new ArrayList<>(List.of("--server.port=0", "--book.id.state-file=", "--book.journal.dir=",
+                    "--spring.main.banner-mode=off", "--logging.level.root=warn"));
+            args.addAll(properties);
+            application = new SpringApplicationBuilder(MyApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .run(args.toArray(new String[0]));
+        }
+        return application;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (application != null) {
+            SpringApplication.exit(application);
+            application = null;
+        }
+    }
+}
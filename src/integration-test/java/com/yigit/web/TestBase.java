@@ -1,21 +1,22 @@
 package com.yigit.web;
 
 import com.yigit.web.utilities.RestUtil;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * This test base class is used to define the test "configuration" as adjusting the connection of the endpoint
+ * Every scenario talks to its own application, see ScenarioContext
  */
 public abstract class TestBase {
 
-    @Value("${local.server.port}")
-    int port;
+    @Autowired
+    protected ScenarioContext scenario;
 
     protected static String getUrl(int port) {
         return "http://localhost:"+port;
     }
 
     protected RestUtil createEndpointConnection() {
-        return new RestUtil(TestBase.getUrl(port));
+        return RestUtil.pooled(TestBase.getUrl(scenario.getPort()));
     }
 }
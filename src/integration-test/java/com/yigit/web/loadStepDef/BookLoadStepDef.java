@@ -0,0 +1,65 @@
+package com.yigit.web.loadStepDef;
+
+import com.yigit.web.Book;
+import com.yigit.web.BookService;
+import com.yigit.web.ScenarioContext;
+import com.yigit.web.TestBase;
+import com.yigit.web.utilities.LoadBaseline;
+import com.yigit.web.utilities.LoadGenerator;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import io.cucumber.spring.CucumberContextConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load scenarios run one after the other, each against its own application from the ScenarioContext
+ */
+@CucumberContextConfiguration
+@ContextConfiguration(classes = ScenarioContext.class)
+@Slf4j
+public class BookLoadStepDef extends TestBase {
+
+    private int seededBooks;
+    private LoadGenerator.LoadResult result;
+
+    @Given("the catalog holds the books 1 to {int}")
+    public void theCatalogHoldsTheBooks1To(int bookCount) {
+        Instant publishedDate = Instant.now();
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int id = 1; id <= bookCount; id++) {
+            books.add(new Book(id, "Load book " + id, publishedDate));
+        }
+        scenario.getBean(BookService.class).addBooks(books, 0);
+        seededBooks = bookCount;
+    }
+
+    @When("{int} requests per second of {int}% GET and {int}% POST, the rest PUT, run for {int} seconds")
+    public void requestsPerSecondRunFor(int rate, int getPercent, int postPercent, int seconds) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(getUrl(scenario.getPort()), seededBooks);
+        //The same load at the start lets the JIT settle before anything is measured
+        generator.run(rate, getPercent, postPercent, Duration.ofSeconds(Math.max(1, seconds / 3)));
+        result = generator.run(rate, getPercent, postPercent, Duration.ofSeconds(seconds));
+        log.info("{} requests/s of {}% GET, {}% POST: {}", rate, getPercent, postPercent, result);
+    }
+
+    @Then("Verify that no load request failed")
+    public void verifyThatNoLoadRequestFailed() {
+        Assertions.assertEquals(0, result.getErrors(), "FAILED REQUEST COUNT SHOULD BE:");
+    }
+
+    @And("Verify that p99 latency and throughput stay within {int}% of the {string} baseline")
+    public void verifyThatP99LatencyAndThroughputStayWithinOfTheBaseline(int tolerancePercent, String name) throws IOException {
+        String regressions = new LoadBaseline().check(name, result, tolerancePercent);
+        Assertions.assertTrue(regressions.isEmpty(), "LOAD SHOULD HOLD THE " + name + " BASELINE: " + regressions);
+    }
+}
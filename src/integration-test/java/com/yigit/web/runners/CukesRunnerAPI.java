@@ -1,20 +1,24 @@
 package com.yigit.web.runners;
 
-import io.cucumber.junit.Cucumber;
-import io.cucumber.junit.CucumberOptions;
-import org.junit.runner.RunWith;
+import org.junit.platform.suite.api.ConfigurationParameter;
+import org.junit.platform.suite.api.IncludeEngines;
+import org.junit.platform.suite.api.SelectClasspathResource;
+import org.junit.platform.suite.api.Suite;
 
+import static io.cucumber.junit.platform.engine.Constants.FILTER_TAGS_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.GLUE_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.PLUGIN_PROPERTY_NAME;
 
 
-@RunWith(Cucumber.class)
-@CucumberOptions(
-        plugin = {"json:build/apiTests.json", "pretty", "html:build/cucumber-reports"},
-        features = "src/integration-test/resources/features",
-        glue = "com/yigit/web/stepDef",
-        tags = "@smoke"
-)
+@Suite
+@IncludeEngines("cucumber")
+@SelectClasspathResource("features")
+@ConfigurationParameter(key = PLUGIN_PROPERTY_NAME, value = "json:build/apiTests.json, pretty, html:build/cucumber-reports")
+@ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "com.yigit.web.stepDef")
+@ConfigurationParameter(key = FILTER_TAGS_PROPERTY_NAME, value = "@smoke or @regression")
 /**
  * This class runs and connect all feature and step definition methods for API
+ * Scenarios run in parallel, see junit-platform.properties
  */
 public class CukesRunnerAPI {
 
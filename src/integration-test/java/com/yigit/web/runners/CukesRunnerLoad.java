@@ -0,0 +1,27 @@
+package com.yigit.web.runners;
+
+import org.junit.platform.suite.api.ConfigurationParameter;
+import org.junit.platform.suite.api.IncludeEngines;
+import org.junit.platform.suite.api.SelectClasspathResource;
+import org.junit.platform.suite.api.Suite;
+
+import static io.cucumber.junit.platform.engine.Constants.FILTER_TAGS_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.GLUE_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.PARALLEL_EXECUTION_ENABLED_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.PLUGIN_PROPERTY_NAME;
+
+
+@Suite
+@IncludeEngines("cucumber")
+@SelectClasspathResource("features")
+@ConfigurationParameter(key = PLUGIN_PROPERTY_NAME, value = "json:build/loadTests.json, pretty, html:build/cucumber-load-reports")
+@ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "com.yigit.web.loadStepDef")
+@ConfigurationParameter(key = FILTER_TAGS_PROPERTY_NAME, value = "@load")
+//Load scenarios would measure each other when run side by side
+@ConfigurationParameter(key = PARALLEL_EXECUTION_ENABLED_PROPERTY_NAME, value = "false")
+/**
+ * This class runs the load scenarios, run it with gradle loadTest
+ */
+public class CukesRunnerLoad {
+
+}
@@ -0,0 +1,63 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class BookBatchStepDef extends TestBase {
+
+    @When("user posts a batch of {int} books")
+    public void userPostsABatchOfBooks(int bookCount) {
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (int i = 0; i < bookCount; i++) {
+            books.add(Map.of("bookName", "Batch book " + i));
+        }
+        scenario.setResponse(createEndpointConnection().postReqWithBody("/books/batch", books));
+    }
+
+    @When("user adds the books {string} in one batch")
+    public void userAddsTheBooksInOneBatch(String bookIds) {
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (String bookId : bookIds.split(",")) {
+            books.add(Map.of("bookId", Integer.valueOf(bookId), "bookName", "Added book " + bookId));
+        }
+        scenario.setResponse(createEndpointConnection().postReqWithBody("/books/batch", books));
+    }
+
+    @When("user renames the books {string} in one batch")
+    public void userRenamesTheBooksInOneBatch(String bookIds) {
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (String bookId : bookIds.split(",")) {
+            books.add(Map.of("bookId", Integer.valueOf(bookId), "bookName", "Renamed book " + bookId));
+        }
+        scenario.setResponse(createEndpointConnection().putReqWithBody("/books/batch", books));
+    }
+
+    @When("user renames the book {int} on its own")
+    public void userRenamesTheBookOnItsOwn(int bookId) {
+        scenario.setResponse(createEndpointConnection().putReqWithBody("/books/" + bookId,
+                Map.of("bookId", bookId, "bookName", "Renamed book " + bookId)));
+    }
+
+    @And("Verify that the batch reports {int} books with status {int}")
+    public void verifyThatTheBatchReportsBooksWithStatus(int bookCount, int status) {
+        List<Integer> statuses = scenario.getResponse().getBody().jsonPath().getList("status");
+        Assertions.assertEquals(bookCount, statuses.size(), "BATCH ITEM COUNT SHOULD BE:");
+        Assertions.assertTrue(statuses.stream().allMatch(itemStatus -> itemStatus == status), "EVERY BATCH ITEM SHOULD HAVE STATUS " + status);
+        List<Integer> bookIds = scenario.getResponse().getBody().jsonPath().getList("bookId");
+        Assertions.assertEquals(bookCount, bookIds.stream().distinct().count(), "BATCH BOOK IDS SHOULD BE UNIQUE");
+    }
+
+    @And("Verify that the batch reports the statuses {string}")
+    public void verifyThatTheBatchReportsTheStatuses(String statuses) {
+        List<Integer> expected = Arrays.stream(statuses.split(",")).map(Integer::valueOf).collect(Collectors.toList());
+        Assertions.assertEquals(expected, scenario.getResponse().getBody().jsonPath().getList("status"), "BATCH STATUSES SHOULD BE:");
+    }
+}
@@ -0,0 +1,96 @@
+package com.yigit.web.stepDef;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BookChangesStepDef extends TestBase {
+
+    private long keptSequence;
+    private final List<String> streamedChanges = new ArrayList<>();
+
+    @When("user reads the changes since {int}")
+    public void userReadsTheChangesSince(int since) {
+        scenario.setResponse(createEndpointConnection().getReq("/books/changes?since=" + since));
+    }
+
+    @And("user keeps the change sequence")
+    public void userKeepsTheChangeSequence() {
+        keptSequence = scenario.getResponse().getBody().jsonPath().getLong("sequence");
+    }
+
+    @When("user reads the changes since the kept sequence")
+    public void userReadsTheChangesSinceTheKeptSequence() {
+        scenario.setResponse(createEndpointConnection().getReq("/books/changes?since=" + keptSequence));
+    }
+
+    @And("Verify that the changes are {string}")
+    public void verifyThatTheChangesAre(String changes) {
+        List<Map<String, Object>> received = scenario.getResponse().getBody().jsonPath().getList("changes");
+        List<String> actual = received.stream().map(change -> change.get("type") + " " + change.get("bookId")).collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList(changes.split(",")), actual, "CHANGES SHOULD BE:");
+    }
+
+    @And("Verify that the changed book {int} is named {string}")
+    public void verifyThatTheChangedBookIsNamed(int bookId, String bookName) {
+        String name = scenario.getResponse().getBody().jsonPath().getString("changes.find { it.bookId == " + bookId + " }.book.bookName");
+        Assertions.assertEquals(bookName, name, "CHANGED BOOK NAME SHOULD BE:");
+    }
+
+    @And("Verify that the response asks for a resync")
+    public void verifyThatTheResponseAsksForAResync() {
+        Assertions.assertTrue(scenario.getResponse().getBody().jsonPath().getBoolean("resyncRequired"), "RESYNC SHOULD BE REQUIRED");
+        Assertions.assertTrue(scenario.getResponse().getBody().jsonPath().getList("changes").isEmpty(), "CHANGES SHOULD BE EMPTY");
+    }
+
+    @Given("user streams the changes since {int} until {int} changes arrive")
+    public void userStreamsTheChangesSinceUntilChangesArrive(int since, int changeCount) throws Exception {
+        ObjectMapper objectMapper = scenario.getBean(ObjectMapper.class);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(getUrl(scenario.getPort()) + "/books/changes/stream?since=" + since))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+        Assertions.assertEquals(200, response.statusCode(), "STATUS CODE SHOULD BE:");
+        //The stream stays open, it is read until enough changes arrived and then closed
+        try (Stream<String> lines = response.body()) {
+            CompletableFuture.runAsync(() -> {
+                Iterator<String> iterator = lines.iterator();
+                while (streamedChanges.size() < changeCount && iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (line.startsWith("data:")) {
+                        try {
+                            JsonNode change = objectMapper.readTree(line.substring("data:".length()));
+                            streamedChanges.add(change.get("type").asText() + " " + change.get("bookId").asInt());
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Event data is not a change: " + line, e);
+                        }
+                    }
+                }
+            }).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Then("Verify that the streamed changes are {string}")
+    public void verifyThatTheStreamedChangesAre(String changes) {
+        Assertions.assertEquals(Arrays.asList(changes.split(",")), streamedChanges, "STREAMED CHANGES SHOULD BE:");
+    }
+}
@@ -0,0 +1,50 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+public class BookCompressionStepDef extends TestBase {
+
+    @Given("the application runs with {string}")
+    public void theApplicationRunsWith(String property) {
+        scenario.addProperty(property);
+    }
+
+    //The body is decompressed by the client, the headers still tell how it came over the wire
+    @When("user gets {string} accepting gzip")
+    public void userGetsAcceptingGzip(String url) {
+        scenario.setResponse(createEndpointConnection().withHeader("Accept-Encoding", "gzip").getReq(url));
+    }
+
+    @When("user gets {string} with Accept-Encoding {string}")
+    public void userGetsWithAcceptEncoding(String url, String acceptEncoding) {
+        scenario.setResponse(createEndpointConnection().withHeader("Accept-Encoding", acceptEncoding).getReq(url));
+    }
+
+    @And("Verify that the response is compressed with {string}")
+    public void verifyThatTheResponseIsCompressedWith(String encoding) {
+        Assertions.assertEquals(encoding, scenario.getResponse().getHeader("Content-Encoding"), "CONTENT ENCODING SHOULD BE:");
+    }
+
+    @And("Verify that the response is not compressed")
+    public void verifyThatTheResponseIsNotCompressed() {
+        Assertions.assertNull(scenario.getResponse().getHeader("Content-Encoding"), "RESPONSE SHOULD NOT BE COMPRESSED");
+    }
+
+    //The server does not compress a response with a strong ETag
+    @And("Verify that the response has a weak ETag")
+    public void verifyThatTheResponseHasAWeakETag() {
+        String eTag = scenario.getResponse().getHeader("ETag");
+        Assertions.assertNotNull(eTag, "ETAG IS MISSING");
+        Assertions.assertTrue(eTag.startsWith("W/"), "ETAG SHOULD BE WEAK BUT WAS " + eTag);
+    }
+
+    @And("Verify that the catalog holds book {int} named {string}")
+    public void verifyThatTheCatalogHoldsBookNamed(int bookId, String bookName) {
+        String name = scenario.getResponse().getBody().jsonPath().getString("find { it.bookId == " + bookId + " }.bookName");
+        Assertions.assertEquals(bookName, name, "BOOK NAME SHOULD BE:");
+    }
+}
@@ -0,0 +1,56 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class BookDateStepDef extends TestBase {
+
+    @Given("user adds books published on {string}")
+    public void userAddsBooksPublishedOn(String dates) {
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (String date : dates.split(",")) {
+            books.add(Map.of("bookName", "Book of " + date, "publishedDate", date + "T12:00:00Z"));
+        }
+        scenario.setResponse(createEndpointConnection().postReqWithBody("/books/batch", books));
+        Assertions.assertEquals(200, scenario.getResponse().getStatusCode(), "STATUS CODE SHOULD BE:");
+    }
+
+    @When("user follows the link to the next page")
+    public void userFollowsTheLinkToTheNextPage() {
+        String link = scenario.getResponse().getHeader("Link");
+        Assertions.assertNotNull(link, "NEXT PAGE LINK IS MISSING");
+        scenario.setResponse(createEndpointConnection().getReq(link.substring(link.indexOf('<') + 1, link.indexOf('>'))));
+    }
+
+    @And("Verify that the books were published on {string}")
+    public void verifyThatTheBooksWerePublishedOn(String dates) {
+        List<String> publishedDates = scenario.getResponse().getBody().jsonPath().getList("publishedDate");
+        List<String> days = publishedDates.stream().map(date -> date.substring(0, 10)).collect(Collectors.toList());
+        Assertions.assertEquals(Arrays.asList(dates.split(",")), days, "PUBLICATION DATES SHOULD BE:");
+    }
+
+    @And("Verify that the counts are {string}")
+    public void verifyThatTheCountsAre(String counts) {
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        for (String count : counts.split(",")) {
+            String[] parts = count.split("=");
+            expected.put(parts[0], Integer.valueOf(parts[1]));
+        }
+        List<Map<String, Object>> buckets = scenario.getResponse().getBody().jsonPath().getList("$");
+        Map<String, Integer> actual = new LinkedHashMap<>();
+        for (Map<String, Object> bucket : buckets) {
+            actual.put((String) bucket.get("start"), ((Number) bucket.get("count")).intValue());
+        }
+        Assertions.assertEquals(expected, actual, "PUBLISHED COUNTS SHOULD BE:");
+    }
+}
@@ -0,0 +1,51 @@
+package com.yigit.web.stepDef;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yigit.web.Book;
+import com.yigit.web.BookService;
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+
+public class BookExportStepDef extends TestBase {
+
+    @Given("the catalog holds at least {int} books")
+    public void theCatalogHoldsAtLeastBooks(int bookCount) {
+        BookService bookService = scenario.getBean(BookService.class);
+        Instant publishedDate = Instant.now();
+        for (int i = bookService.findAllBooks().size(); i < bookCount; i++) {
+            bookService.addBook(new Book(0, "Exported book " + i, publishedDate));
+        }
+    }
+
+    @When("user exports the catalog")
+    public void userExportsTheCatalog() {
+        scenario.setResponse(createEndpointConnection().getReq("/books/export", "application/x-ndjson"));
+    }
+
+    @And("Verify that the export holds every book of the catalog on its own line")
+    public void verifyThatTheExportHoldsEveryBookOfTheCatalogOnItsOwnLine() throws IOException {
+        ObjectMapper objectMapper = scenario.getBean(ObjectMapper.class);
+        Assertions.assertEquals("application/x-ndjson", scenario.getResponse().getContentType(), "CONTENT TYPE SHOULD BE:");
+        int lines = 0;
+        int previousId = Integer.MIN_VALUE;
+        try (BufferedReader reader = new BufferedReader(new StringReader(scenario.getResponse().getBody().asString()))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                JsonNode book = objectMapper.readTree(line);
+                int bookId = book.get("bookId").asInt();
+                Assertions.assertTrue(bookId > previousId, "BOOKS SHOULD BE ORDERED BY ID");
+                previousId = bookId;
+                lines++;
+            }
+        }
+        Assertions.assertEquals(scenario.getBean(BookService.class).findAllBooks().size(), lines, "EXPORTED BOOK COUNT SHOULD BE:");
+    }
+}
@@ -0,0 +1,128 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import com.yigit.web.utilities.RestUtil;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import io.restassured.response.Response;
+import io.restassured.response.ResponseOptions;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BookIdStepDef extends TestBase {
+
+    private final List<Integer> createdIds = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Integer, String> explicitBooks = new ConcurrentHashMap<>();
+
+    @When("{int} users create {int} books each at the same time")
+    public void usersCreateBooksEachAtTheSameTime(int users, int booksPerUser) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            //Pooled clients are thread-safe, so all writers share one
+            RestUtil restUtil = createEndpointConnection();
+            for (int user = 0; user < users; user++) {
+                int writer = user;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < booksPerUser; i++) {
+                        ResponseOptions<Response> response = restUtil.postReqWithBody("/books",
+                                Map.of("bookName", "Book " + writer + "-" + i));
+                        Assertions.assertEquals(201, response.getStatusCode(), "STATUS CODE SHOULD BE:");
+                        String location = response.getHeader("Location");
+                        createdIds.add(Integer.valueOf(location.substring(location.lastIndexOf('/') + 1)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writerResult : writers) {
+                writerResult.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(users * booksPerUser, createdIds.size(), "CREATED BOOK COUNT SHOULD BE:");
+    }
+
+    @When("{int} users create {int} books each while other users add the books {int} to {int}")
+    public void usersCreateBooksEachWhileOtherUsersAddTheBooks(int users, int booksPerUser, int firstBookId, int lastBookId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(users * 2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            RestUtil restUtil = createEndpointConnection();
+            for (int user = 0; user < users; user++) {
+                int writer = user;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < booksPerUser; i++) {
+                        ResponseOptions<Response> response = restUtil.postReqWithBody("/books",
+                                Map.of("bookName", "Book " + writer + "-" + i));
+                        Assertions.assertEquals(201, response.getStatusCode(), "STATUS CODE SHOULD BE:");
+                    }
+                    return null;
+                }));
+                //Every explicit writer takes every users-th id, so the ids meet the blocks of the allocator
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int bookId = firstBookId + writer; bookId <= lastBookId; bookId += users) {
+                        String bookName = "Explicit book " + bookId;
+                        ResponseOptions<Response> response = restUtil.postReqWithBody("/books",
+                                Map.of("bookId", bookId, "bookName", bookName));
+                        Assertions.assertEquals(201, response.getStatusCode(), "STATUS CODE SHOULD BE:");
+                        explicitBooks.put(bookId, bookName);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writerResult : writers) {
+                writerResult.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @When("user creates a book with the id {int}")
+    public void userCreatesABookWithTheId(int bookId) {
+        scenario.setResponse(createEndpointConnection().postReqWithBody("/books", Map.of("bookId", bookId, "bookName", "Book " + bookId)));
+    }
+
+    @When("user creates a book without an id")
+    public void userCreatesABookWithoutAnId() {
+        scenario.setResponse(createEndpointConnection().postReqWithBody("/books", Map.of("bookName", "Book without an id")));
+    }
+
+    @Then("Verify that no created book replaced a book added with its id")
+    public void verifyThatNoCreatedBookReplacedABookAddedWithItsId() {
+        List<Map<String, Object>> books = createEndpointConnection().getReq("/books").getBody().jsonPath().getList("$");
+        Map<Integer, Object> names = new HashMap<>();
+        for (Map<String, Object> book : books) {
+            names.put((Integer) book.get("bookId"), book.get("bookName"));
+        }
+        for (Map.Entry<Integer, String> explicit : explicitBooks.entrySet()) {
+            Assertions.assertEquals(explicit.getValue(), names.get(explicit.getKey()), "BOOK " + explicit.getKey() + " WAS REPLACED BY A CREATED BOOK");
+        }
+    }
+
+    @Then("Verify that every created book gets a unique id")
+    public void verifyThatEveryCreatedBookGetsAUniqueId() {
+        Set<Integer> uniqueIds = new HashSet<>(createdIds);
+        Assertions.assertEquals(createdIds.size(), uniqueIds.size(), "DUPLICATE BOOK IDS WERE HANDED OUT");
+    }
+}
@@ -0,0 +1,186 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.Book;
+import com.yigit.web.BookIdAllocator;
+import com.yigit.web.BookJournal;
+import com.yigit.web.BookRepository;
+import com.yigit.web.InMemoryBookRepository;
+import io.cucumber.java.After;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BookJournalStepDef {
+
+    private Path directory;
+    private BookJournal journal;
+    private List<Book> loggedBooks;
+    private BookRepository recoveredStore;
+    private final List<String> undurableWrites = new ArrayList<>();
+
+    @Given("a journal which logged {int} books and {int} renames")
+    public void aJournalWhichLoggedBooksAndRenames(int bookCount, int renameCount) throws Exception {
+        logBooks(Long.MAX_VALUE, bookCount, renameCount);
+    }
+
+    @Given("a journal which snapshots every {int} bytes and logged {int} books and {int} renames")
+    public void aJournalWhichSnapshotsEveryBytesAndLoggedBooksAndRenames(int snapshotAfterBytes, int bookCount, int renameCount) throws Exception {
+        logBooks(snapshotAfterBytes, bookCount, renameCount);
+    }
+
+    //The store compares the log with the books it is handed, a record not on disk yet is reported
+    @When("{int} books are logged into a store which checks the log first")
+    public void booksAreLoggedIntoAStoreWhichChecksTheLogFirst(int bookCount) throws Exception {
+        directory = Files.createTempDirectory("book-journal");
+        journal = new BookJournal(directory.toString(), Long.MAX_VALUE, new BookIdAllocator(64, ""));
+        BookRepository store = journal.open(new InMemoryBookRepository() {
+            private long loggedBytes;
+
+            @Override
+            public Book save(Book book) {
+                checkLogged(1);
+                return super.save(book);
+            }
+
+            @Override
+            public void saveAll(Collection<Book> books) {
+                checkLogged(books.size());
+                for (Book book : books) {
+                    super.save(book);
+                }
+            }
+
+            private synchronized void checkLogged(int bookCount) {
+                long bytes = logBytes();
+                if (bytes <= loggedBytes) {
+                    undurableWrites.add(bookCount + " books reached the store with " + bytes + " bytes logged");
+                }
+                loggedBytes = bytes;
+            }
+        });
+        Instant publishedDate = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= bookCount; id++) {
+            books.add(new Book(id, "Journaled book " + id, publishedDate));
+        }
+        store.saveAll(books.subList(0, bookCount / 2));
+        for (Book book : books.subList(bookCount / 2, bookCount)) {
+            store.save(book);
+        }
+        loggedBooks = books;
+        recoveredStore = store;
+    }
+
+    @Then("Verify that every book was logged before the store saw it")
+    public void verifyThatEveryBookWasLoggedBeforeTheStoreSawIt() {
+        Assertions.assertEquals(List.of(), undurableWrites, "BOOKS SHOULD BE LOGGED BEFORE THEY REACH THE STORE");
+    }
+
+    @And("the last journal segment ends with a torn write")
+    public void theLastJournalSegmentEndsWithATornWrite() throws IOException {
+        Path lastSegment;
+        try (Stream<Path> files = Files.list(directory)) {
+            lastSegment = files.filter(file -> file.getFileName().toString().endsWith(".log") && fileSize(file) > 0)
+                    .max(Comparator.comparing(file -> file.getFileName().toString())).orElseThrow();
+        }
+        //Header of a record whose body never reached the disk
+        Files.write(lastSegment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0}, StandardOpenOption.APPEND);
+    }
+
+    @When("the journal is reopened into an empty store")
+    public void theJournalIsReopenedIntoAnEmptyStore() throws Exception {
+        recoveredStore = new InMemoryBookRepository();
+        journal = new BookJournal(directory.toString(), Long.MAX_VALUE, new BookIdAllocator(64, ""));
+        journal.open(recoveredStore);
+    }
+
+    @Then("Verify that the store holds the logged books")
+    public void verifyThatTheStoreHoldsTheLoggedBooks() {
+        Assertions.assertEquals(loggedBooks.size(), recoveredStore.count(), "RECOVERED BOOK COUNT SHOULD BE:");
+        for (Book book : loggedBooks) {
+            Book recovered = recoveredStore.findById(book.getBookId());
+            Assertions.assertNotNull(recovered, "BOOK SHOULD BE RECOVERED: " + book.getBookId());
+            Assertions.assertEquals(book.getBookName(), recovered.getBookName(), "RECOVERED BOOK NAME SHOULD BE:");
+            Assertions.assertEquals(book.getPublishedDate(), recovered.getPublishedDate(), "RECOVERED PUBLISHED DATE SHOULD BE:");
+        }
+    }
+
+    @And("Verify that the journal directory holds a snapshot")
+    public void verifyThatTheJournalDirectoryHoldsASnapshot() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+            Assertions.assertTrue(names.stream().anyMatch(name -> name.startsWith("snapshot-")), "SNAPSHOT SHOULD BE WRITTEN: " + names);
+            Assertions.assertFalse(names.contains("books-0.log"), "FIRST SEGMENT SHOULD BE REPLACED BY THE SNAPSHOT: " + names);
+        }
+    }
+
+    @After("@regression")
+    public void closeJournal() throws Exception {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+            directory = null;
+        }
+    }
+
+    private void logBooks(long snapshotAfterBytes, int bookCount, int renameCount) throws Exception {
+        directory = Files.createTempDirectory("book-journal");
+        journal = new BookJournal(directory.toString(), snapshotAfterBytes, new BookIdAllocator(64, ""));
+        BookRepository store = journal.open(new InMemoryBookRepository());
+        Instant publishedDate = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= bookCount; id++) {
+            books.add(new Book(id, id % 100 == 0 ? null : "Journaled book " + id, publishedDate));
+        }
+        store.saveAll(books.subList(0, bookCount / 2));
+        for (Book book : books.subList(bookCount / 2, bookCount)) {
+            store.save(book);
+        }
+        for (int id = 1; id <= renameCount; id++) {
+            books.set(id - 1, store.save(books.get(id - 1).withBookName("Renamed book " + id)));
+        }
+        journal.close();
+        journal = null;
+        loggedBooks = books;
+    }
+
+    private long logBytes() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).mapToLong(BookJournalStepDef::fileSize).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long fileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import org.junit.jupiter.api.Assertions;
+
+public class BookMetricsStepDef extends TestBase {
+
+    private double keptValue;
+
+    @Given("user reads the metric {string}")
+    public void userReadsTheMetric(String metric) {
+        keptValue = readMetric(metric);
+    }
+
+    @And("Verify that the metric {string} grew by {int}")
+    public void verifyThatTheMetricGrewBy(String metric, int growth) {
+        Assertions.assertEquals(keptValue + growth, readMetric(metric), "METRIC " + metric + " SHOULD BE:");
+    }
+
+    //Sums the samples of the metric in the Prometheus text format, whatever their tags
+    private double readMetric(String metric) {
+        String body = createEndpointConnection().getReq("/actuator/prometheus", "text/plain").getBody().asString();
+        double value = 0;
+        for (String line : body.split("\n")) {
+            if (line.startsWith(metric + " ") || line.startsWith(metric + "{")) {
+                value += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import com.yigit.web.utilities.RestUtil;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.When;
+import io.restassured.response.Response;
+import io.restassured.response.ResponseOptions;
+import org.junit.jupiter.api.Assertions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BookSearchStepDef extends TestBase {
+
+    private final Map<String, Integer> addedBookIds = new HashMap<>();
+    private final List<String> renameWords = new ArrayList<>();
+
+    @Given("user adds the books {string}")
+    public void userAddsTheBooks(String bookNames) {
+        for (String bookName : bookNames.split(",")) {
+            String location = createEndpointConnection().postReqWithBody("/books", Map.of("bookName", bookName)).getHeader("Location");
+            addedBookIds.put(bookName, Integer.valueOf(location.substring(location.lastIndexOf('/') + 1)));
+        }
+    }
+
+    @When("user renames the book {string} to {string}")
+    public void userRenamesTheBookTo(String bookName, String newBookName) {
+        int bookId = addedBookIds.get(bookName);
+        scenario.setResponse(createEndpointConnection().putReqWithBody("/books/" + bookId, Map.of("bookId", bookId, "bookName", newBookName)));
+        Assertions.assertEquals(200, scenario.getResponse().getStatusCode(), "STATUS CODE SHOULD BE:");
+    }
+
+    @When("user gets the book {string}")
+    public void userGetsTheBook(String bookName) {
+        scenario.setResponse(createEndpointConnection().getReq("/books/" + addedBookIds.get(bookName)));
+    }
+
+    @And("Verify that the book is named {string}")
+    public void verifyThatTheBookIsNamed(String bookName) {
+        Assertions.assertEquals(bookName, scenario.getResponse().getBody().jsonPath().getString("bookName"), "BOOK NAME SHOULD BE:");
+    }
+
+    //Every user renames the book to a name of its own word again and again, the words are no
+    //prefixes of each other so a search for one finds no other
+    @When("{int} users rename the book {string} at the same time")
+    public void usersRenameTheBookAtTheSameTime(int users, String bookName) throws Exception {
+        int bookId = addedBookIds.get(bookName);
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            RestUtil restUtil = createEndpointConnection();
+            for (int user = 0; user < users; user++) {
+                String word = "v" + user + "z";
+                renameWords.add(word);
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20; i++) {
+                        ResponseOptions<Response> response = restUtil.putReqWithBody("/books/" + bookId,
+                                Map.of("bookId", bookId, "bookName", "Edition " + word));
+                        Assertions.assertEquals(200, response.getStatusCode(), "STATUS CODE SHOULD BE:");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @And("Verify that the book {string} is found by its current name only")
+    public void verifyThatTheBookIsFoundByItsCurrentNameOnly(String bookName) {
+        int bookId = addedBookIds.get(bookName);
+        String currentName = createEndpointConnection().getReq("/books/" + bookId).getBody().jsonPath().getString("bookName");
+        for (String word : renameWords) {
+            List<Integer> found = createEndpointConnection().getReq("/books/search?q=" + word).getBody().jsonPath().getList("bookId", Integer.class);
+            Assertions.assertEquals(currentName.endsWith(" " + word), found.contains(bookId),
+                    "SEARCH FOR " + word + " WITH THE BOOK NAMED " + currentName + " FOUND " + found);
+        }
+    }
+
+    @When("user searches books for {string}")
+    public void userSearchesBooksFor(String query) {
+        scenario.setResponse(createEndpointConnection().getReq("/books/search?q=" + query));
+    }
+
+    @And("Verify that the search returns the books {string}")
+    public void verifyThatTheSearchReturnsTheBooks(String bookNames) {
+        //Ids come from per-thread blocks, so books added one after another need not be in id order
+        List<String> expected = bookNames.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(bookNames.split(",")));
+        List<String> found = new ArrayList<>(scenario.getResponse().getBody().jsonPath().getList("bookName", String.class));
+        Collections.sort(expected);
+        Collections.sort(found);
+        Assertions.assertEquals(expected, found, "FOUND BOOKS SHOULD BE:");
+    }
+}
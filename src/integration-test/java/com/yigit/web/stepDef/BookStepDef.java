@@ -3,31 +3,46 @@ package com.yigit.web.stepDef;
 import com.yigit.web.utilities.RestUtil;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
+import io.cucumber.java.en.And;
 import org.junit.jupiter.api.Assertions;
-import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 import io.cucumber.spring.CucumberContextConfiguration;
-import io.restassured.response.Response;
-import io.restassured.response.ResponseOptions;
 
+import com.yigit.web.ScenarioContext;
 import com.yigit.web.TestBase;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 @CucumberContextConfiguration
-@ContextConfiguration
+@ContextConfiguration(classes = ScenarioContext.class)
 public class BookStepDef extends TestBase{
 
-    public static ResponseOptions<Response> response;
-
     @Given("Route user gets data from {string} resource with GET request")
     public void routeUserGetsDataFromResourceWithGETRequest(String url) {
         RestUtil restUtil= createEndpointConnection();
-        response = restUtil.getReq(url);
-        response.getBody().prettyPeek();
+        scenario.setResponse(restUtil.getReq(url));
     }
 
     @Then("Verify that user gets success code {int}")
     public void verifyThatUserGetsSuccessCode(int successCode) {
-        Assertions.assertEquals(response.getStatusCode(), successCode, "STATUS CODE SHOULD BE:");
+        Assertions.assertEquals(scenario.getResponse().getStatusCode(), successCode, "STATUS CODE SHOULD BE:");
+    }
+
+    @And("Verify that the page holds {int} books with the fields {string}")
+    public void verifyThatThePageHoldsBooksWithTheFields(int bookCount, String fields) {
+        List<Map<String, Object>> books = scenario.getResponse().getBody().jsonPath().getList("$");
+        Assertions.assertEquals(bookCount, books.size(), "BOOK COUNT SHOULD BE:");
+        for (Map<String, Object> book : books) {
+            Assertions.assertEquals(Arrays.asList(fields.split(",")), List.copyOf(book.keySet()), "BOOK FIELDS SHOULD BE:");
+        }
+    }
+
+    @And("Verify that the response links to the page after book {int}")
+    public void verifyThatTheResponseLinksToThePageAfterBook(int bookId) {
+        String link = scenario.getResponse().getHeader("Link");
+        Assertions.assertNotNull(link, "NEXT PAGE LINK IS MISSING");
+        Assertions.assertTrue(link.contains("after=" + bookId) && link.endsWith("rel=\"next\""), "NEXT PAGE LINK SHOULD POINT AFTER BOOK " + bookId + " BUT WAS " + link);
     }
 }
@@ -0,0 +1,34 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.TestBase;
+import com.yigit.web.utilities.RestUtil;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+public class ConditionalGetStepDef extends TestBase {
+
+    private String eTag;
+
+    @And("user keeps the received ETag")
+    public void userKeepsTheReceivedETag() {
+        eTag = scenario.getResponse().getHeader("ETag");
+        Assertions.assertNotNull(eTag, "ETAG IS MISSING");
+    }
+
+    @When("user revalidates {string} with the kept ETag")
+    public void userRevalidatesWithTheKeptETag(String url) {
+        RestUtil restUtil = createEndpointConnection().withHeader("If-None-Match", eTag);
+        scenario.setResponse(restUtil.getReq(url));
+    }
+
+    //Keeps the epoch of the kept ETag, so the ETag would match had the book existed since the start
+    @When("user revalidates {string} with the kept ETag moved to book {int} at version {int}")
+    public void userRevalidatesWithTheKeptETagMovedToBookAtVersion(String url, int bookId, int version) {
+        String prefix = eTag.startsWith("W/") ? "W/" : "";
+        String epoch = eTag.substring(prefix.length() + 1, eTag.indexOf('-'));
+        RestUtil restUtil = createEndpointConnection()
+                .withHeader("If-None-Match", prefix + "\"" + epoch + "-" + bookId + "-" + version + "\"");
+        scenario.setResponse(restUtil.getReq(url));
+    }
+}
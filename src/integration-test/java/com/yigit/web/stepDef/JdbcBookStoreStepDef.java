@@ -0,0 +1,86 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.Book;
+import com.yigit.web.JdbcBookRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.cucumber.java.After;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class JdbcBookStoreStepDef {
+
+    private HikariDataSource dataSource;
+    private JdbcBookRepository store;
+    private Instant publishedDate;
+
+    @Given("a JDBC book store which saved {int} books in batches")
+    public void aJdbcBookStoreWhichSavedBooksInBatches(int bookCount) {
+        //Every scenario gets a database of its own, so parallel scenarios do not share books
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        store = new JdbcBookRepository(dataSource);
+        //The database keeps microseconds
+        publishedDate = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        List<Book> books = new ArrayList<>(bookCount);
+        //Saved in reverse so the listing order comes from the database and not from the inserts
+        for (int id = bookCount; id >= 1; id--) {
+            books.add(new Book(id, "Book " + id, publishedDate));
+        }
+        store.saveAll(books);
+    }
+
+    @When("a new JDBC book store opens the same database")
+    public void aNewJdbcBookStoreOpensTheSameDatabase() {
+        store = new JdbcBookRepository(dataSource);
+    }
+
+    @When("the JDBC book store saves book {int} as {string}")
+    public void theJdbcBookStoreSavesBookAs(int bookId, String bookName) {
+        store.save(new Book(bookId, bookName, publishedDate));
+    }
+
+    @Then("Verify that the JDBC book store lists the {int} books in id order")
+    public void verifyThatTheJdbcBookStoreListsTheBooksInIdOrder(int bookCount) {
+        List<Book> books = store.findAll();
+        Assertions.assertEquals(bookCount, books.size(), "BOOK COUNT SHOULD BE:");
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            Assertions.assertEquals(i + 1, book.getBookId(), "BOOKS SHOULD BE ORDERED BY ID");
+            Assertions.assertEquals("Book " + (i + 1), book.getBookName(), "BOOK NAME SHOULD BE:");
+            Assertions.assertEquals(publishedDate, book.getPublishedDate(), "PUBLISHED DATE SHOULD BE:");
+        }
+    }
+
+    @And("Verify that the JDBC book store pages after book {int} with {int} books")
+    public void verifyThatTheJdbcBookStorePagesAfterBookWithBooks(int afterBookId, int limit) {
+        List<Book> page = store.findPage(afterBookId, limit);
+        Assertions.assertEquals(limit, page.size(), "PAGE SIZE SHOULD BE:");
+        Assertions.assertEquals(afterBookId + 1, page.get(0).getBookId(), "PAGE SHOULD START AFTER BOOK " + afterBookId);
+    }
+
+    @Then("Verify that the JDBC book store holds {int} books")
+    public void verifyThatTheJdbcBookStoreHoldsBooks(int bookCount) {
+        Assertions.assertEquals(bookCount, store.count(), "BOOK COUNT SHOULD BE:");
+    }
+
+    @And("Verify that the JDBC book store returns {string} for book {int}")
+    public void verifyThatTheJdbcBookStoreReturnsForBook(String bookName, int bookId) {
+        Assertions.assertEquals(bookName, store.findById(bookId).getBookName(), "BOOK NAME SHOULD BE:");
+    }
+
+    @After
+    public void closeDatabase() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
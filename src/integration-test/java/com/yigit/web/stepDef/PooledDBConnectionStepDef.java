@@ -0,0 +1,125 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.utilities.PooledDBConnection;
+import io.cucumber.java.After;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class PooledDBConnectionStepDef {
+
+    private static final String SELECT_ROWS = "SELECT id, name FROM test_rows WHERE id > ? ORDER BY id";
+
+    private PooledDBConnection db;
+    private int poolSize;
+    private final List<Integer> readIds = new ArrayList<>();
+    private final List<Integer> activeWhileReading = new ArrayList<>();
+    private Exception failure;
+
+    @Given("a pool of {int} connections to a database holding {int} rows")
+    public void aPoolOfConnectionsToADatabaseHoldingRows(int poolSize, int rowCount) throws SQLException {
+        this.poolSize = poolSize;
+        //Every scenario gets a database of its own, so parallel scenarios do not share rows
+        db = new PooledDBConnection("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "", poolSize);
+        db.update("CREATE TABLE test_rows (id INT PRIMARY KEY, name VARCHAR(64) NOT NULL)");
+        for (int id = 1; id <= rowCount; id++) {
+            db.update("INSERT INTO test_rows (id, name) VALUES (?, ?)", id, "Row " + id);
+        }
+    }
+
+    //Streamed more often than the pool holds connections, so a connection kept by one stream fails a later one
+    @When("the rows are streamed {int} times")
+    public void theRowsAreStreamedTimes(int times) throws SQLException {
+        for (int i = 0; i < times; i++) {
+            readIds.clear();
+            try (Stream<Integer> ids = db.stream(SELECT_ROWS, this::readId, 0)) {
+                ids.forEach(readIds::add);
+            }
+        }
+    }
+
+    @When("the rows are streamed {int} times with a mapper which fails at row {int}")
+    public void theRowsAreStreamedTimesWithAMapperWhichFailsAtRow(int times, int failingId) throws SQLException {
+        for (int i = 0; i < times; i++) {
+            readIds.clear();
+            try (Stream<Integer> ids = db.stream(SELECT_ROWS, row -> failAt(row.getInt(1), failingId), 0)) {
+                ids.forEach(readIds::add);
+            } catch (IllegalStateException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @When("the rows are read {int} times with a callback which fails at row {int}")
+    public void theRowsAreReadTimesWithACallbackWhichFailsAtRow(int times, int failingId) {
+        for (int i = 0; i < times; i++) {
+            readIds.clear();
+            try {
+                db.forEachRow(SELECT_ROWS, row -> readIds.add(failAt(row.getInt(1), failingId)), 0);
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Then("Verify that the last read got the rows 1 to {int} in order")
+    public void verifyThatTheLastReadGotTheRowsToInOrder(int lastId) {
+        Assertions.assertEquals(lastId, readIds.size(), "READ ROW COUNT SHOULD BE:");
+        for (int i = 0; i < readIds.size(); i++) {
+            Assertions.assertEquals(i + 1, readIds.get(i), "ROWS SHOULD BE ORDERED BY ID");
+        }
+    }
+
+    @Then("Verify that the read failed at row {int}")
+    public void verifyThatTheReadFailedAtRow(int failingId) {
+        Assertions.assertNotNull(failure, "READ SHOULD FAIL");
+        Throwable cause = failure instanceof SQLException ? failure : failure.getCause();
+        Assertions.assertEquals("Row " + failingId + " is broken", cause.getMessage(), "FAILURE SHOULD BE:");
+    }
+
+    @And("Verify that every read held one connection")
+    public void verifyThatEveryReadHeldOneConnection() {
+        Assertions.assertFalse(activeWhileReading.isEmpty(), "ROWS SHOULD BE READ");
+        for (int active : activeWhileReading) {
+            Assertions.assertEquals(1, active, "ACTIVE CONNECTIONS WHILE READING SHOULD BE:");
+        }
+    }
+
+    @And("Verify that every connection went back to the pool")
+    public void verifyThatEveryConnectionWentBackToThePool() throws SQLException {
+        Assertions.assertEquals(0, db.getActiveConnections(), "ACTIVE CONNECTIONS SHOULD BE:");
+        //Every connection of the pool still works after the reads
+        for (int i = 0; i <= poolSize; i++) {
+            Assertions.assertEquals(1, db.getCellValue("SELECT id FROM test_rows WHERE id = ?", 1, 1), "FIRST ROW ID SHOULD BE:");
+        }
+    }
+
+    @After
+    public void closeDatabase() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    private int readId(ResultSet row) throws SQLException {
+        activeWhileReading.add(db.getActiveConnections());
+        return row.getInt(1);
+    }
+
+    private int failAt(int id, int failingId) throws SQLException {
+        activeWhileReading.add(db.getActiveConnections());
+        if (id == failingId) {
+            throw new SQLException("Row " + id + " is broken");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,109 @@
+package com.yigit.web.stepDef;
+
+import com.yigit.web.Book;
+import com.yigit.web.BookMetrics;
+import com.yigit.web.BookRepository;
+import com.yigit.web.BookWriteBehind;
+import com.yigit.web.InMemoryBookRepository;
+import io.cucumber.java.After;
+import io.cucumber.java.en.And;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.jupiter.api.Assertions;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class WriteBehindBookStoreStepDef {
+
+    private final Map<Integer, Integer> saves = new ConcurrentHashMap<>();
+    private final Instant publishedDate = Instant.now();
+    private InMemoryBookRepository store;
+    private BookWriteBehind writeBehind;
+    private BookRepository buffer;
+
+    @Given("a write-behind buffer with {word} durability over a store of {int} books")
+    public void aWriteBehindBufferWithDurabilityOverAStoreOfBooks(String durability, int bookCount) {
+        //Counts the books which reach the store
+        store = new InMemoryBookRepository() {
+            @Override
+            public Book save(Book book) {
+                saves.merge(book.getBookId(), 1, Integer::sum);
+                return super.save(book);
+            }
+        };
+        for (int id = 1; id <= bookCount; id++) {
+            store.save(new Book(id, "Book " + id, publishedDate));
+        }
+        saves.clear();
+        //A long delay keeps the books in the buffer until it closes, unless writers wait for the store
+        writeBehind = new BookWriteBehind(true, 1024, 1000, 60_000, durability, BookMetrics.DISABLED);
+        buffer = writeBehind.open(store);
+    }
+
+    @When("the write-behind buffer writes book {int} {int} times")
+    public void theWriteBehindBufferWritesBookTimes(int bookId, int times) {
+        for (int i = 1; i <= times; i++) {
+            buffer.save(new Book(bookId, "Book " + bookId + " write " + i, publishedDate));
+        }
+    }
+
+    @When("the write-behind buffer writes {int} new books")
+    public void theWriteBehindBufferWritesNewBooks(int bookCount) {
+        int first = store.count() + 1;
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int id = first; id < first + bookCount; id++) {
+            books.add(new Book(id, "Book " + id, publishedDate));
+        }
+        buffer.saveAll(books);
+    }
+
+    @When("the write-behind buffer closes")
+    public void theWriteBehindBufferCloses() {
+        writeBehind.close();
+    }
+
+    //The writer may take a write before the others arrive, so only an upper bound is certain
+    @Then("Verify that the store saved book {int} at most {int} times")
+    public void verifyThatTheStoreSavedBookAtMostTimes(int bookId, int times) {
+        int saved = saves.getOrDefault(bookId, 0);
+        Assertions.assertTrue(saved >= 1 && saved <= times, "STORE SAVES OF BOOK " + bookId + " SHOULD BE AT MOST " + times + " BUT WERE " + saved);
+    }
+
+    @Then("Verify that the write-behind buffer counts {int} books")
+    public void verifyThatTheWriteBehindBufferCountsBooks(int bookCount) {
+        Assertions.assertEquals(bookCount, buffer.count(), "BOOK COUNT SHOULD BE:");
+    }
+
+    @And("Verify that the store returns {string} for book {int}")
+    public void verifyThatTheStoreReturnsForBook(String bookName, int bookId) {
+        Assertions.assertEquals(bookName, store.findById(bookId).getBookName(), "BOOK NAME SHOULD BE:");
+    }
+
+    @And("Verify that the store holds {int} books")
+    public void verifyThatTheStoreHoldsBooks(int bookCount) {
+        Assertions.assertEquals(bookCount, store.count(), "STORE BOOK COUNT SHOULD BE:");
+    }
+
+    @Then("Verify that the write-behind buffer lists {int} books in id order")
+    public void verifyThatTheWriteBehindBufferListsBooksInIdOrder(int bookCount) {
+        Assertions.assertEquals(bookCount, buffer.count(), "BOOK COUNT SHOULD BE:");
+        List<Book> books = buffer.findAll();
+        Assertions.assertEquals(bookCount, books.size(), "LISTED BOOKS SHOULD BE:");
+        for (int i = 0; i < books.size(); i++) {
+            Assertions.assertEquals(i + 1, books.get(i).getBookId(), "BOOKS SHOULD BE ORDERED BY ID");
+        }
+        Assertions.assertEquals("Book " + bookCount, buffer.findById(bookCount).getBookName(), "BOOK NAME SHOULD BE:");
+    }
+
+    @After
+    public void closeBuffer() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+}
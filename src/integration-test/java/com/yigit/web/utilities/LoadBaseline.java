@@ -0,0 +1,75 @@
+package com.yigit.web.utilities;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Load results which later runs are held to, kept in load-baseline.properties as
+ * name.p99Ms and name.throughput entries.
+ * Runs are checked only with -Dbook.load.check-baseline=true, since the baseline holds for the machine
+ * it was recorded on. A checked run fails when no baseline is stored for it.
+ * Runs with -Dbook.load.update-baseline=true store their results as the new baseline instead.
+ */
+@Slf4j
+public final class LoadBaseline {
+
+    private static final Path FILE = Paths.get("src/integration-test/resources/load-baseline.properties");
+
+    private final Properties properties = new Properties();
+
+    public LoadBaseline() throws IOException {
+        if (Files.exists(FILE)) {
+            try (Reader reader = Files.newBufferedReader(FILE)) {
+                properties.load(reader);
+            }
+        }
+    }
+
+    /**
+     * @param name             name of the baseline
+     * @param result           result of the run
+     * @param tolerancePercent how far p99 may rise above and throughput may fall below the baseline
+     * @return description of every regression, empty when there is none
+     * @throws IOException when the baseline cannot be updated
+     */
+    public String check(String name, LoadGenerator.LoadResult result, int tolerancePercent) throws IOException {
+        if (Boolean.getBoolean("book.load.update-baseline")) {
+            properties.setProperty(name + ".p99Ms", String.format(Locale.ROOT, "%.2f", result.getLatencyMillis(99)));
+            properties.setProperty(name + ".throughput", String.format(Locale.ROOT, "%.0f", result.getThroughput()));
+            try (Writer writer = Files.newBufferedWriter(FILE)) {
+                properties.store(writer, "Load test baseline, see LoadBaseline");
+            }
+            log.info("Stored {} as the {} baseline", result, name);
+            return "";
+        }
+
+        if (!Boolean.getBoolean("book.load.check-baseline")) {
+            log.info("{} is not checked against the {} baseline, run with -Pcheck-baseline to check it", result, name);
+            return "";
+        }
+        String p99 = properties.getProperty(name + ".p99Ms");
+        String throughput = properties.getProperty(name + ".throughput");
+        if (p99 == null || throughput == null) {
+            return "No " + name + " baseline is stored, record it with -Pupdate-baseline.";
+        }
+
+        StringBuilder regressions = new StringBuilder();
+        double allowedP99 = Double.parseDouble(p99) * (100 + tolerancePercent) / 100;
+        if (result.getLatencyMillis(99) > allowedP99) {
+            regressions.append(String.format("p99 %.2f ms is above %.2f ms. ", result.getLatencyMillis(99), allowedP99));
+        }
+        double requiredThroughput = Double.parseDouble(throughput) * (100 - tolerancePercent) / 100;
+        if (result.getThroughput() < requiredThroughput) {
+            regressions.append(String.format("Throughput %.0f requests/s is below %.0f requests/s. ", result.getThroughput(), requiredThroughput));
+        }
+        return regressions.toString().trim();
+    }
+}
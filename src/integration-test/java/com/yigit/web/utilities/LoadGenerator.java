@@ -0,0 +1,147 @@
+package com.yigit.web.utilities;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load against the /books resources. Requests are sent on a fixed schedule at the
+ * target rate whether or not the earlier ones were answered, and every latency is taken from the
+ * time the request was due rather than the time it was sent, so a stalled server shows up in the
+ * percentiles instead of slowing the load down.
+ * GET and PUT pick a random book of the seeded range, POST adds a new book.
+ */
+public final class LoadGenerator {
+
+    //Longest latency the histogram tells apart, slower requests are recorded as this value
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String baseUrl;
+    private final int seededBooks;
+    private final HttpClient client;
+
+    /**
+     * @param baseUrl     url of the running application
+     * @param seededBooks GET and PUT pick one of the books 1 to seededBooks
+     */
+    public LoadGenerator(String baseUrl, int seededBooks) {
+        this.baseUrl = baseUrl;
+        this.seededBooks = seededBooks;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Sends rate requests per second for the duration, then waits for the answers
+     *
+     * @param rate        requests per second
+     * @param getPercent  share of GET /books/{bookId}
+     * @param postPercent share of POST /books, the rest are PUT /books/{bookId}
+     * @param duration    how long requests are sent
+     * @return latencies and throughput of the run
+     * @throws InterruptedException when interrupted while waiting for the answers
+     */
+    public LoadResult run(int rate, int getPercent, int postPercent, Duration duration) throws InterruptedException {
+        if (rate < 1 || getPercent < 0 || postPercent < 0 || getPercent + postPercent > 100) {
+            throw new IllegalArgumentException("Invalid load: " + rate + " requests/s, " + getPercent + "% GET, " + postPercent + "% POST");
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = duration.getSeconds() * rate;
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        LongAdder errors = new LongAdder();
+        CountDownLatch answered = new CountDownLatch((int) requests);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            client.sendAsync(nextRequest(getPercent, postPercent), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.increment();
+                        } else {
+                            latencies.recordValue(Math.min(System.nanoTime() - due, MAX_LATENCY_NANOS));
+                        }
+                        answered.countDown();
+                    });
+        }
+        if (!answered.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(answered.getCount() + " requests were not answered within a minute");
+        }
+        return new LoadResult(latencies, errors.sum(), System.nanoTime() - start);
+    }
+
+    private HttpRequest nextRequest(int getPercent, int postPercent) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(100);
+        int bookId = random.nextInt(seededBooks) + 1;
+        if (pick < getPercent) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + bookId)).GET().build();
+        }
+        if (pick < getPercent + postPercent) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/books"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"bookName\":\"Load book " + random.nextInt() + "\"}"))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + bookId))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"bookId\":" + bookId + ",\"bookName\":\"Renamed book " + random.nextInt() + "\"}"))
+                .build();
+    }
+
+    /**
+     * Outcome of one run, latencies only hold the answered requests
+     */
+    public static final class LoadResult {
+        private final Histogram latencies;
+        private final long errors;
+        private final long elapsedNanos;
+
+        LoadResult(Histogram latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return answered requests per second, from the first request until the last answer
+         */
+        public double getThroughput() {
+            return latencies.getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @param percentile percentile between 0 and 100
+         * @return latency at the percentile in milliseconds
+         */
+        public double getLatencyMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f requests/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d errors",
+                    getThroughput(), getLatencyMillis(50), getLatencyMillis(99), latencies.getMaxValue() / 1e6, errors);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.yigit.web.utilities;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Thread-safe variant of DBConnection over a pool of connections.
+ * Every query is a prepared statement with bind parameters, which the driver keeps prepared per
+ * connection, and is read forward-only in pages of FETCH_SIZE rows. forEachRow and stream hand out
+ * one row at a time, so tables of millions of rows are verified without holding them in memory.
+ * Statements and result sets are closed as soon as the rows are read, or when the stream is closed.
+ */
+@Slf4j
+public final class PooledDBConnection implements AutoCloseable {
+
+    //Rows the driver fetches per round trip while streaming
+    private static final int FETCH_SIZE = 1000;
+
+    private final HikariDataSource dataSource;
+
+    /**
+     * Maps the current row of the result set, it must not move the cursor
+     *
+     * @param <T> type of the mapped row
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Gets the current row of the result set, it must not move the cursor
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void accept(ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Create a pool of connections to Database, the driver is found through the url
+     *
+     * @param dbUrl          url which database belongs to
+     * @param dbUsername     username of the db
+     * @param dbPassword     password of the db
+     * @param maxConnections most connections open at once
+     */
+    public PooledDBConnection(String dbUrl, String dbUsername, String dbPassword, int maxConnections) {
+        log.info("Connecting to Database: " + dbUrl);
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(dbUrl);
+        config.setUsername(dbUsername);
+        config.setPassword(dbPassword);
+        config.setMaximumPoolSize(maxConnections);
+        config.setPoolName("test-db");
+        //PostgreSQL prepares statements on the server from their first use and keeps them per connection
+        if (dbUrl.startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("prepareThreshold", "1");
+            config.addDataSourceProperty("preparedStatementCacheQueries", "256");
+        }
+        dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * @return connections taken from the pool and not given back yet
+     */
+    public int getActiveConnections() {
+        return dataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    /**
+     * Closes every pooled connection to the target database
+     */
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    /**
+     * Executes an INSERT, UPDATE or DELETE statement
+     *
+     * @param sql    statement with ? placeholders
+     * @param params values of the placeholders in order
+     * @return number of changed rows
+     * @throws SQLException throws when statement is not correct
+     */
+    public int update(String sql, Object... params) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = prepare(connection, sql, params)) {
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Passes every row to the callback while the rows are read
+     *
+     * @param sql      query with ? placeholders
+     * @param callback gets every row
+     * @param params   values of the placeholders in order
+     * @return number of rows
+     * @throws SQLException throws when statement is not correct
+     */
+    public long forEachRow(String sql, RowCallback callback, Object... params) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            //Some drivers, PostgreSQL among them, only fetch in pages inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = prepare(connection, sql, params);
+                 ResultSet result = statement.executeQuery()) {
+                long rows = 0;
+                while (result.next()) {
+                    callback.accept(result);
+                    rows++;
+                }
+                return rows;
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Rows of the query mapped while the stream is read. The stream holds a connection until it
+     * is closed, so it belongs in a try-with-resources block.
+     *
+     * @param sql    query with ? placeholders
+     * @param mapper maps every row
+     * @param params values of the placeholders in order
+     * @param <T>    type of the mapped rows
+     * @return stream of the mapped rows
+     * @throws SQLException throws when statement is not correct
+     */
+    public <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        PreparedStatement statement = null;
+        ResultSet result = null;
+        try {
+            connection.setAutoCommit(false);
+            statement = prepare(connection, sql, params);
+            result = statement.executeQuery();
+        } catch (SQLException e) {
+            release(connection, statement, result);
+            throw e;
+        }
+        ResultSet rows = result;
+        PreparedStatement query = statement;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rows));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Reading a row of " + sql + " failed", e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> release(connection, query, rows));
+    }
+
+    /**
+     * Rows of the query mapped into a list, for results known to be small
+     *
+     * @param sql    query with ? placeholders
+     * @param mapper maps every row
+     * @param params values of the placeholders in order
+     * @param <T>    type of the mapped rows
+     * @return mapped rows in the order of the query
+     * @throws SQLException throws when statement is not correct
+     */
+    public <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        forEachRow(sql, row -> rows.add(mapper.map(row)), params);
+        return rows;
+    }
+
+    /**
+     * Get Single cell value of the first row
+     *
+     * @param sql          query with ? placeholders
+     * @param columnNumber specific column, starting at 1
+     * @param params       values of the placeholders in order
+     * @return returns cell value, null when the query has no rows
+     * @throws SQLException throws when statement is not correct
+     */
+    public Object getCellValue(String sql, int columnNumber, Object... params) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = prepare(connection, sql, params)) {
+            statement.setMaxRows(1);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getObject(columnNumber) : null;
+            }
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    private static void release(Connection connection, PreparedStatement statement, ResultSet result) {
+        try (Connection toClose = connection) {
+            try (PreparedStatement statementToClose = statement; ResultSet resultToClose = result) {
+                //Closed in reverse order before the transaction ends
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to release the connection", e);
+        }
+    }
+}
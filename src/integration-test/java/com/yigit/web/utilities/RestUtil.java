@@ -2,17 +2,51 @@ package com.yigit.web.utilities;
 
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.filter.log.RequestLoggingFilter;
+import io.restassured.filter.log.ResponseLoggingFilter;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import io.restassured.response.ResponseOptions;
 import io.restassured.specification.RequestSpecification;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 
 
-
+/**
+ * Calls the API through REST Assured, in one of two modes.
+ * Instances made with the constructors keep one mutable request, so they must stay on one thread.
+ * Instances made with pooled() are immutable and can be shared by any number of threads: every
+ * call starts a fresh request from the same base, and all of them share one pool of keep-alive
+ * connections. Request and response logging is off unless -Drestutil.log=true is given.
+ */
 public final class RestUtil {
 
+    //Most open connections of the pooled mode, per API url and in total
+    private static final int MAX_CONNECTIONS = 1024;
+    private static final boolean LOG = Boolean.getBoolean("restutil.log");
+
+    //Created on first use, since most suites never go beyond the single-threaded mode
+    private static final class Pool {
+        static final DefaultHttpClient HTTP_CLIENT = httpClient();
+        static final RestAssuredConfig CONFIG = RestAssuredConfig.config().httpClient(HttpClientConfig.httpClientConfig()
+                .reuseHttpClientInstance()
+                .httpClientFactory(() -> HTTP_CLIENT));
+
+        private static DefaultHttpClient httpClient() {
+            PoolingClientConnectionManager connections = new PoolingClientConnectionManager();
+            connections.setMaxTotal(MAX_CONNECTIONS);
+            connections.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+            return new DefaultHttpClient(connections);
+        }
+    }
+
     public RequestSpecification request;
 
+    //Base of every call in the pooled mode, never changed once built
+    private final RequestSpecification baseSpec;
+
     /**
      * This constructor will create baseURI, ContentType and
      * it will adjust the Request for us.
@@ -26,24 +60,65 @@ public final class RestUtil {
     }
 
     public RestUtil(String apiUrl) {
+        RequestSpecification requestSpec = baseSpecBuilder(apiUrl).build();
+        request = RestAssured.given().spec(requestSpec);
+        baseSpec = null;
+    }
+
+    private RestUtil(RequestSpecification baseSpec) {
+        this.baseSpec = baseSpec;
+    }
+
+    /**
+     * Thread-safe client which reuses pooled keep-alive connections
+     *
+     * @param apiUrl url of the API
+     * @return client which can be shared between threads
+     */
+    public static RestUtil pooled(String apiUrl) {
+        return new RestUtil(baseSpecBuilder(apiUrl).setConfig(Pool.CONFIG).build());
+    }
+
+    private static RequestSpecBuilder baseSpecBuilder(String apiUrl) {
         RequestSpecBuilder builder = new RequestSpecBuilder();
         builder.setBaseUri(apiUrl);
         builder.setContentType(ContentType.JSON);
         builder.addHeader("Cache-Control", "no-cache, no-store, max-age=0, must-revalidate");
-        RequestSpecification requestSpec = builder.build();
-        request = RestAssured.given().spec(requestSpec);
+        if (LOG) {
+            builder.addFilter(new RequestLoggingFilter());
+            builder.addFilter(new ResponseLoggingFilter());
+        }
+        return builder;
     }
 
     /**
      * Add Header to requestSpecification with two Parameter
+     * Pooled clients are immutable, they use withHeader instead
      *
      * @param headerName  key for header
      * @param headerValue value for header
      */
     public void addHeader(String headerName, Object headerValue) {
+        if (baseSpec != null) {
+            throw new UnsupportedOperationException("Pooled clients are immutable, use withHeader");
+        }
         request.header(headerName, headerValue);
     }
 
+    /**
+     * Pooled client which sends one more header on every call
+     *
+     * @param headerName  key for header
+     * @param headerValue value for header
+     * @return new pooled client, this one is left as it is
+     */
+    public RestUtil withHeader(String headerName, Object headerValue) {
+        if (baseSpec == null) {
+            throw new UnsupportedOperationException("Only pooled clients make copies, use addHeader");
+        }
+        return new RestUtil(new RequestSpecBuilder().addRequestSpecification(baseSpec).addHeader(headerName, headerValue.toString()).build());
+    }
+
     /**
      * Get Request with Path Parameter
      *
@@ -51,8 +126,20 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> getReq(String url) {
-        request.header("Accept", "application/json");
-        return request.get(url);
+        return getReq(url, "application/json");
+    }
+
+    /**
+     * Get Request for the given media type
+     *
+     * @param url       endpoint
+     * @param mediaType value of the Accept header
+     * @return Response
+     */
+    public ResponseOptions<Response> getReq(String url, String mediaType) {
+        RequestSpecification call = call();
+        call.header("Accept", mediaType);
+        return call.get(url);
     }
 
     /**
@@ -63,9 +150,10 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> getReqWithPathParamForPDF(String url, String param) {
-        request.header("Accept", "application/pdf");
-        request.pathParam("id", param);
-        return request.get(url + "/{id}").prettyPeek();
+        RequestSpecification call = call();
+        call.header("Accept", "application/pdf");
+        call.pathParam("id", param);
+        return call.get(url + "/{id}");
     }
 
     /**
@@ -76,8 +164,7 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> postReqWithBody(String url, Object body) {
-        request.body(body);
-        return request.post(url);
+        return call().body(body).post(url);
     }
 
     /**
@@ -88,8 +175,7 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> putReqWithBody(String url, Object body) {
-        request.body(body);
-        return request.put(url);
+        return call().body(body).put(url);
     }
 
     /**
@@ -100,8 +186,7 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> patchReqWithBody(String url, Object body) {
-        request.body(body);
-        return request.patch(url);
+        return call().body(body).patch(url);
     }
 
     /**
@@ -111,7 +196,11 @@ public final class RestUtil {
      * @return Response
      */
     public ResponseOptions<Response> deleteReq(String url) {
-        return request.delete(url);
+        return call().delete(url);
     }
-}
 
+    //The request of this call: the shared one in the single-threaded mode, a fresh one in the pooled mode
+    private RequestSpecification call() {
+        return baseSpec == null ? request : RestAssured.given().spec(baseSpec);
+    }
+}
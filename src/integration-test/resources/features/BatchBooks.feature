@@ -0,0 +1,16 @@
+@regression
+Feature: Batch Book Requests
+
+    Scenario: Creating books in one batch
+        When user posts a batch of 1000 books
+        Then Verify that user gets success code 200
+        And Verify that the batch reports 1000 books with status 201
+
+    Scenario: Updating books in one batch reports missing books
+        When user renames the books "1,-1" in one batch
+        Then Verify that user gets success code 200
+        And Verify that the batch reports the statuses "200,404"
+
+    Scenario: Updating a missing book on its own reports it missing like a batch does
+        When user renames the book -1 on its own
+        Then Verify that user gets success code 404
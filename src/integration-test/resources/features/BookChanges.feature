@@ -0,0 +1,30 @@
+@regression
+Feature: Book Change Feed
+
+    Scenario: Reading the changes since the start
+        When user reads the changes since 0
+        Then Verify that user gets success code 200
+        And Verify that the changes are "created 1,created 2,created 3"
+
+    Scenario: Reading only the changes after the kept sequence
+        Given user reads the changes since 0
+        And user keeps the change sequence
+        And user renames the books "3" in one batch
+        When user reads the changes since the kept sequence
+        Then Verify that user gets success code 200
+        And Verify that the changes are "updated 3"
+        And Verify that the changed book 3 is named "Renamed book 3"
+
+    Scenario: A client of an earlier run is asked to resync
+        Given Route user gets data from "/books/changes?since=0&epoch=earlier" resource with GET request
+        Then Verify that user gets success code 410
+        And Verify that the response asks for a resync
+
+    Scenario: A client ahead of the change log is asked to resync
+        Given Route user gets data from "/books/changes?since=1000000" resource with GET request
+        Then Verify that user gets success code 410
+        And Verify that the response asks for a resync
+
+    Scenario: Streaming the changes as Server-Sent Events
+        Given user streams the changes since 0 until 3 changes arrive
+        Then Verify that the streamed changes are "created 1,created 2,created 3"
@@ -0,0 +1,23 @@
+@regression
+Feature: Book Id Allocation
+
+    Scenario: Concurrent book creation hands out unique ids
+        When 64 users create 50 books each at the same time
+        Then Verify that every created book gets a unique id
+
+    Scenario: Books created with and without an id at the same time keep their ids apart
+        When 16 users create 50 books each while other users add the books 4 to 1000
+        Then Verify that no created book replaced a book added with its id
+
+    Scenario: A book id above the explicit range is rejected and leaves the generated ids alone
+        When user creates a book with the id 2147483000
+        Then Verify that user gets success code 400
+        When user creates a book without an id
+        Then Verify that user gets success code 201
+
+    Scenario: A book id below 1 is rejected, alone and in a batch
+        When user creates a book with the id -5
+        Then Verify that user gets success code 400
+        When user adds the books "5000,-5" in one batch
+        Then Verify that user gets success code 200
+        And Verify that the batch reports the statuses "201,400"
@@ -0,0 +1,24 @@
+@regression
+Feature: Book Journal
+
+    Scenario: Reopening the journal recovers the books
+        Given a journal which logged 1000 books and 10 renames
+        When the journal is reopened into an empty store
+        Then Verify that the store holds the logged books
+
+    Scenario: A torn write at the end of the journal is skipped
+        Given a journal which logged 1000 books and 10 renames
+        And the last journal segment ends with a torn write
+        When the journal is reopened into an empty store
+        Then Verify that the store holds the logged books
+
+    Scenario: A snapshot replaces the older journal segments
+        Given a journal which snapshots every 4096 bytes and logged 1000 books and 10 renames
+        When the journal is reopened into an empty store
+        Then Verify that the store holds the logged books
+        And Verify that the journal directory holds a snapshot
+
+    Scenario: Books reach the store only once they are logged
+        When 100 books are logged into a store which checks the log first
+        Then Verify that every book was logged before the store saw it
+        And Verify that the store holds the logged books
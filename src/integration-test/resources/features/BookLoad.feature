@@ -0,0 +1,13 @@
+@load
+Feature: Book Load
+
+    Scenario Outline: Open-loop book traffic holds the baseline
+        Given the catalog holds the books 1 to 10000
+        When <rate> requests per second of <get>% GET and <post>% POST, the rest PUT, run for <seconds> seconds
+        Then Verify that no load request failed
+        And Verify that p99 latency and throughput stay within <tolerance>% of the "<baseline>" baseline
+
+        Examples:
+            | baseline    | rate | get | post | seconds | tolerance |
+            | read-heavy  | 2000 | 90  | 5    | 30      | 25        |
+            | write-heavy | 1000 | 50  | 25   | 30      | 25        |
@@ -0,0 +1,8 @@
+@regression
+Feature: Book Metrics
+
+    Scenario: Reading a book which does not exist counts a lookup miss
+        Given user reads the metric "book_lookup_misses_total"
+        When Route user gets data from "/books/999999" resource with GET request
+        Then Verify that user gets success code 404
+        And Verify that the metric "book_lookup_misses_total" grew by 1
@@ -0,0 +1,11 @@
+@regression
+Feature: Pre-serialized Book Responses
+
+    Scenario: A renamed book is served with its new name from the JSON cache
+        Given the application runs with "book.json-cache.enabled=true"
+        And user adds the books "Dune"
+        And user gets the book "Dune"
+        When user renames the book "Dune" to "Dune Messiah"
+        And user gets the book "Dune"
+        Then Verify that user gets success code 200
+        And Verify that the book is named "Dune Messiah"
@@ -0,0 +1,47 @@
+@regression
+Feature: Compressed Book Responses
+
+    Scenario: Large catalog responses are gzipped
+        Given the catalog holds at least 100 books
+        When user gets "/books" accepting gzip
+        Then Verify that user gets success code 200
+        And Verify that the response is compressed with "gzip"
+        And Verify that the response has a weak ETag
+
+    Scenario: Small responses are not compressed
+        When user gets "/books/1" accepting gzip
+        Then Verify that user gets success code 200
+        And Verify that the response is not compressed
+
+    Scenario: The cached catalog is served precompressed until the next write
+        Given the application runs with "book.catalog-cache.enabled=true"
+        And the catalog holds at least 100 books
+        When user gets "/books" accepting gzip
+        Then Verify that user gets success code 200
+        And Verify that the response is compressed with "gzip"
+        And Verify that the catalog holds book 3 named "Song of Ice and fire"
+        When user renames the books "3" in one batch
+        And user gets "/books" accepting gzip
+        Then Verify that the response is compressed with "gzip"
+        And Verify that the catalog holds book 3 named "Renamed book 3"
+
+    Scenario: An explicit gzip weight overrides the wildcard
+        Given the application runs with "book.catalog-cache.enabled=true"
+        And the catalog holds at least 100 books
+        When user gets "/books" with Accept-Encoding "*;q=0, gzip"
+        Then Verify that user gets success code 200
+        And Verify that the response is compressed with "gzip"
+        And Verify that the response has a weak ETag
+
+    Scenario: A catalog above the cache size limit is serialized on every request
+        Given the application runs with "book.catalog-cache.enabled=true"
+        And the application runs with "book.catalog-cache.max-size=1KB"
+        And the catalog holds at least 100 books
+        When user gets "/books" accepting gzip
+        Then Verify that user gets success code 200
+        And Verify that the response is compressed with "gzip"
+        And Verify that the catalog holds book 3 named "Song of Ice and fire"
+        When user renames the books "3" in one batch
+        And user gets "/books" accepting gzip
+        Then Verify that user gets success code 200
+        And Verify that the catalog holds book 3 named "Renamed book 3"
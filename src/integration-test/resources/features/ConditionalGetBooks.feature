@@ -0,0 +1,39 @@
+@regression
+Feature: Conditional Book Requests
+
+    Scenario: Revalidating an unchanged book
+        Given Route user gets data from "/books/2" resource with GET request
+        And user keeps the received ETag
+        When user revalidates "/books/2" with the kept ETag
+        Then Verify that user gets success code 304
+
+    Scenario: Revalidating an unchanged catalog page
+        Given Route user gets data from "/books?limit=10" resource with GET request
+        And user keeps the received ETag
+        When user revalidates "/books?limit=10" with the kept ETag
+        Then Verify that user gets success code 304
+
+    Scenario: Revalidating a changed book
+        Given Route user gets data from "/books/3" resource with GET request
+        And user keeps the received ETag
+        And user renames the books "3" in one batch
+        When user revalidates "/books/3" with the kept ETag
+        Then Verify that user gets success code 200
+
+    Scenario: Revalidating a book which does not exist
+        Given Route user gets data from "/books/1" resource with GET request
+        And user keeps the received ETag
+        When user revalidates "/books/999999" with the kept ETag moved to book 999999 at version 0
+        Then Verify that user gets success code 404
+
+    Scenario: Revalidating a changed book after the stamps were dropped
+        Given the application runs with "book.stamps.max=2"
+        And Route user gets data from "/books/3" resource with GET request
+        And user keeps the received ETag
+        And user renames the books "3" in one batch
+        And user posts a batch of 10 books
+        When user revalidates "/books/3" with the kept ETag
+        Then Verify that user gets success code 200
+        And user keeps the received ETag
+        When user revalidates "/books/3" with the kept ETag
+        Then Verify that user gets success code 304
@@ -0,0 +1,8 @@
+@regression
+Feature: Export Books
+
+    Scenario: Exporting the catalog as newline delimited JSON
+        Given the catalog holds at least 100000 books
+        When user exports the catalog
+        Then Verify that user gets success code 200
+        And Verify that the export holds every book of the catalog on its own line
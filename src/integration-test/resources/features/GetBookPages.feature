@@ -0,0 +1,12 @@
+@regression
+Feature: Get Book Pages
+
+    Scenario: Paging through the catalog with a cursor
+        Given Route user gets data from "/books?limit=2&fields=bookId,bookName" resource with GET request
+        Then Verify that user gets success code 200
+        And Verify that the page holds 2 books with the fields "bookId,bookName"
+        And Verify that the response links to the page after book 2
+
+    Scenario: Unknown fields are rejected
+        Given Route user gets data from "/books?limit=2&fields=isbn" resource with GET request
+        Then Verify that user gets success code 400
@@ -0,0 +1,22 @@
+@regression
+Feature: Get Books By Publication Date
+
+    Scenario: Paging through the books published in a date range
+        Given user adds books published on "1901-03-20,1901-03-04,1901-05-01,1901-03-04"
+        When Route user gets data from "/books?publishedFrom=1901-03-01&publishedTo=1901-03-31&limit=2" resource with GET request
+        Then Verify that user gets success code 200
+        And Verify that the books were published on "1901-03-04,1901-03-04"
+        When user follows the link to the next page
+        Then Verify that the books were published on "1901-03-20"
+
+    Scenario: Counting the books published per month and per day
+        Given user adds books published on "1902-01-31,1902-01-01,1902-03-15,1902-01-31"
+        When Route user gets data from "/books/published-counts?from=1902-01-01&to=1902-12-31&bucket=month" resource with GET request
+        Then Verify that user gets success code 200
+        And Verify that the counts are "1902-01-01=3,1902-03-01=1"
+        When Route user gets data from "/books/published-counts?from=1902-01-01&to=1902-01-31" resource with GET request
+        Then Verify that the counts are "1902-01-01=1,1902-01-31=2"
+
+    Scenario: Unknown buckets are rejected
+        Given Route user gets data from "/books/published-counts?bucket=week" resource with GET request
+        Then Verify that user gets success code 400
@@ -0,0 +1,14 @@
+@regression
+Feature: JDBC Book Store
+
+    Scenario: Books saved in the database survive a new store on the same database
+        Given a JDBC book store which saved 2500 books in batches
+        When a new JDBC book store opens the same database
+        Then Verify that the JDBC book store lists the 2500 books in id order
+        And Verify that the JDBC book store pages after book 1000 with 100 books
+
+    Scenario: Saving a book again replaces it
+        Given a JDBC book store which saved 10 books in batches
+        When the JDBC book store saves book 5 as "Renamed book"
+        Then Verify that the JDBC book store holds 10 books
+        And Verify that the JDBC book store returns "Renamed book" for book 5
@@ -0,0 +1,23 @@
+@regression
+Feature: Pooled DB Connection
+
+    Scenario: Streamed rows give their connection back once the stream is closed
+        Given a pool of 2 connections to a database holding 2500 rows
+        When the rows are streamed 3 times
+        Then Verify that the last read got the rows 1 to 2500 in order
+        And Verify that every read held one connection
+        And Verify that every connection went back to the pool
+
+    Scenario: A stream failing mid-way gives its connection back
+        Given a pool of 2 connections to a database holding 2500 rows
+        When the rows are streamed 3 times with a mapper which fails at row 1500
+        Then Verify that the read failed at row 1500
+        And Verify that the last read got the rows 1 to 1499 in order
+        And Verify that every connection went back to the pool
+
+    Scenario: A row callback failing mid-way gives its connection back
+        Given a pool of 2 connections to a database holding 2500 rows
+        When the rows are read 3 times with a callback which fails at row 1500
+        Then Verify that the read failed at row 1500
+        And Verify that the last read got the rows 1 to 1499 in order
+        And Verify that every connection went back to the pool
@@ -0,0 +1,31 @@
+@regression
+Feature: Search Books
+
+    Scenario: Searching books by the words of their name
+        Given user adds the books "Xylograph Atlas,Xylograph Almanac,Quiet Xylographs"
+        When user searches books for "xylograph A"
+        Then Verify that user gets success code 200
+        And Verify that the search returns the books "Xylograph Atlas,Xylograph Almanac"
+
+    Scenario: Searching books by the start of a word
+        Given user adds the books "Vellum Maps,Vellums of Old,Parchment"
+        When user searches books for "vell"
+        Then Verify that user gets success code 200
+        And Verify that the search returns the books "Vellum Maps,Vellums of Old"
+
+    Scenario: Renamed books are found by their new name only
+        Given user adds the books "Quokka Guide"
+        When user renames the book "Quokka Guide" to "Wombat Guide"
+        And user searches books for "quokka"
+        Then Verify that the search returns the books ""
+        When user searches books for "wombat guide"
+        Then Verify that the search returns the books "Wombat Guide"
+
+    Scenario: A query without words is rejected
+        Given Route user gets data from "/books/search?q=--" resource with GET request
+        Then Verify that user gets success code 400
+
+    Scenario: Concurrent renames of one book leave it found by its current name only
+        Given user adds the books "Lantern Field Notes"
+        When 16 users rename the book "Lantern Field Notes" at the same time
+        Then Verify that the book "Lantern Field Notes" is found by its current name only
@@ -0,0 +1,24 @@
+@regression
+Feature: Write-Behind Book Store
+
+    Scenario: Repeated writes of a book reach the store once
+        Given a write-behind buffer with memory durability over a store of 10 books
+        When the write-behind buffer writes book 5 1000 times
+        Then Verify that the write-behind buffer counts 10 books
+        When the write-behind buffer closes
+        Then Verify that the store saved book 5 at most 2 times
+        And Verify that the store returns "Book 5 write 1000" for book 5
+
+    Scenario: Buffered books are read before they reach the store
+        Given a write-behind buffer with memory durability over a store of 10 books
+        When the write-behind buffer writes 3 new books
+        Then Verify that the write-behind buffer lists 13 books in id order
+        And Verify that the store holds 10 books
+        When the write-behind buffer closes
+        Then Verify that the store holds 13 books
+        And Verify that the write-behind buffer counts 13 books
+
+    Scenario: Writes with store durability return once the store holds them
+        Given a write-behind buffer with store durability over a store of 10 books
+        When the write-behind buffer writes 3 new books
+        Then Verify that the store holds 13 books
@@ -0,0 +1,184 @@
+package com.yigit.web;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the server CPU spent per GET /books/{bookId} with and without read coalescing when
+ * a few books take most of the reads. Every mode starts the application in its own JVM, and
+ * every connection is one client virtual thread reading books picked from a Zipf distribution
+ * over the seeded catalog, back to back. CPU time is the user and system time of the server
+ * process read from /proc, so the report runs on Linux.
+ * Run with gradle bookCoalescingReport -Pconnections=200,2000 -Pseconds=20 -Pskew=1.1.
+ */
+public final class BookCoalescingLoadReport {
+
+    private static final int SEED_BOOKS = 10_000;
+    private static final int WARMUP_SECONDS = 5;
+    //Clock ticks per second of /proc/<pid>/stat, 100 on every common Linux build
+    private static final int CLOCK_TICKS = 100;
+
+    private BookCoalescingLoadReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = Arrays.stream((args.length > 0 ? args[0] : "200,2000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        double skew = args.length > 2 ? Double.parseDouble(args[2]) : 1.1;
+        double[] zipf = zipfCumulative(SEED_BOOKS, skew);
+
+        System.out.printf("%-10s %11s %10s %13s %7s%n", "coalescing", "connections", "requests/s", "CPU us/req", "errors");
+        for (boolean coalescing : new boolean[]{false, true}) {
+            int port = freePort();
+            Process server = startServer(port, coalescing);
+            try {
+                String baseUrl = "http://localhost:" + port;
+                awaitServer(baseUrl);
+                seed(baseUrl);
+                for (int connections : connectionCounts) {
+                    run(baseUrl, connections, WARMUP_SECONDS, zipf);
+                    long cpuBefore = cpuTicks(server.pid());
+                    long[] result = run(baseUrl, connections, seconds, zipf);
+                    long cpuTicks = cpuTicks(server.pid()) - cpuBefore;
+                    System.out.printf("%-10s %11d %10.0f %13.1f %7d%n", coalescing ? "on" : "off", connections,
+                            result[0] / (double) seconds,
+                            result[0] == 0 ? Double.NaN : cpuTicks * 1_000_000.0 / CLOCK_TICKS / result[0], result[1]);
+                }
+            } finally {
+                server.destroy();
+                server.waitFor(30, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    //Closed loop: every connection sends its next request as soon as the previous one is answered.
+    //Returns the number of answered requests and of errors.
+    private static long[] run(String baseUrl, int connections, int seconds, double[] zipf) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        LongAdder answered = new LongAdder();
+        LongAdder errors = new LongAdder();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+             ExecutorService connectionThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                connectionThreads.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        int bookId = nextBookId(zipf);
+                        try {
+                            HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + bookId)).GET().build(),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.increment();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                            continue;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        answered.increment();
+                    }
+                });
+            }
+        }
+        return new long[]{answered.sum(), errors.sum()};
+    }
+
+    //Entry i holds the probability of picking one of the books 1 to i + 1
+    private static double[] zipfCumulative(int books, double skew) {
+        double[] cumulative = new double[books];
+        double sum = 0;
+        for (int i = 0; i < books; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < books; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int nextBookId(double[] zipf) {
+        int index = Arrays.binarySearch(zipf, ThreadLocalRandom.current().nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+
+    //User and system time of the process in clock ticks
+    private static long cpuTicks(long pid) throws IOException {
+        String stat = new String(Files.readAllBytes(Paths.get("/proc", Long.toString(pid), "stat")));
+        //The command name may hold spaces, the fields after it do not
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+    }
+
+    private static Process startServer(int port, boolean coalescing) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        return new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                MyApplication.class.getName(),
+                "--server.port=" + port,
+                "--book.read-coalescing.enabled=" + coalescing,
+                "--book.id.state-file=",
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=10000",
+                "--logging.level.root=warn")
+                .inheritIO()
+                .start();
+    }
+
+    private static void awaitServer(String baseUrl) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/1")).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                //Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The server did not start at " + baseUrl);
+    }
+
+    private static void seed(String baseUrl) throws IOException, InterruptedException {
+        StringBuilder books = new StringBuilder();
+        for (int i = 1; i <= SEED_BOOKS; i++) {
+            books.append("{\"bookId\":").append(i).append(",\"bookName\":\"Seed book ").append(i).append("\"}\n");
+        }
+        HttpResponse<Void> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/batch"))
+                .header("Content-Type", BookResource.NDJSON)
+                .POST(HttpRequest.BodyPublishers.ofString(books.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding the catalog failed with status " + response.statusCode());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reports bytes on the wire and CPU time of GET /books for the whole catalog, uncompressed and
+ * gzipped at the levels book.catalog-cache.gzip-level takes, for a few catalog sizes.
+ * Compressing on every request costs the serialize and the compress column per response, the
+ * catalog cache pays both once per write and then only copies the bytes.
+ * Times are the median CPU time of the thread over several rounds. Run with
+ * gradle bookCompressionReport -Pbooks=100,10000,1000000.
+ */
+public final class BookCompressionReport {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 9;
+    private static final int[] LEVELS = {1, 6, 9};
+    private static final String[] WORDS = {"Harry", "Potter", "Lord", "of", "the", "Rings", "Song", "Ice",
+            "and", "Fire", "Chamber", "Secrets", "Return", "King", "Winds", "Winter", "Dance", "Dragons"};
+
+    private BookCompressionReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] catalogSizes = Arrays.stream((args.length > 0 ? args[0] : "100,10000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%8s %-9s %14s %8s %14s %13s %13s%n",
+                "books", "encoding", "bytes on wire", "of JSON", "serialize ms", "compress ms", "compress MB/s");
+        for (int catalogSize : catalogSizes) {
+            List<Book> books = catalog(catalogSize);
+            byte[] json = objectMapper.writeValueAsBytes(books);
+            double serializeMillis = medianCpuMillis(threads, () -> objectMapper.writeValueAsBytes(books));
+            System.out.printf("%8d %-9s %14d %7.1f%% %14.2f %13s %13s%n",
+                    catalogSize, "identity", json.length, 100.0, serializeMillis, "-", "-");
+            for (int level : LEVELS) {
+                byte[] gzip = BookCatalogCache.gzip(json, level);
+                double compressMillis = medianCpuMillis(threads, () -> BookCatalogCache.gzip(json, level));
+                System.out.printf("%8d %-9s %14d %7.1f%% %14.2f %13.2f %13.1f%n",
+                        catalogSize, "gzip-" + level, gzip.length, 100.0 * gzip.length / json.length,
+                        serializeMillis, compressMillis, json.length / 1e3 / compressMillis);
+            }
+        }
+    }
+
+    //Names drawn from a small vocabulary, close to the repetition of real titles
+    private static List<Book> catalog(int catalogSize) {
+        BookIdAllocator idAllocator = new BookIdAllocator(64, "");
+        BookService bookService = new BookService(new InMemoryBookRepository(), idAllocator, new BookJournal("", 0, idAllocator),
+                BookWriteBehind.DISABLED, Collections.emptyList(), BookMetrics.DISABLED);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Instant start = Instant.parse("1950-01-01T00:00:00Z");
+        for (int id = bookService.findAllBooks().size() + 1; id <= catalogSize; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int word = 2 + random.nextInt(4); word > 0; word--) {
+                name.append(WORDS[random.nextInt(WORDS.length)]).append(word > 1 ? " " : "");
+            }
+            bookService.addBook(new Book(id, name.toString(), start.plusSeconds(random.nextLong(2_000_000_000L))));
+        }
+        return bookService.findAllBooks();
+    }
+
+    private static double medianCpuMillis(ThreadMXBean threads, Action action) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            action.run();
+        }
+        double[] millis = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = threads.getCurrentThreadCpuTime();
+            action.run();
+            millis[i] = (threads.getCurrentThreadCpuTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws Exception;
+    }
+}
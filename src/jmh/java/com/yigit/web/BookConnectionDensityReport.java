@@ -0,0 +1,171 @@
+package com.yigit.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares how many slow streaming clients the servlet stack, the servlet stack on virtual
+ * threads and the reactive stack hold, and what every open connection costs the server.
+ * Every stack starts in its own JVM with the same heap. The clients ask for /books/export over a
+ * catalog far bigger than the socket buffers and then stop reading, the way a stalled mobile
+ * client does. Once the server settles the report lists its resident memory and thread count
+ * against the idle server, and how many of the clients got the first bytes of their export.
+ * Resident memory and threads are read from /proc, so the report runs on Linux.
+ * Run with gradle bookConnectionReport -Pconnections=1000,4000.
+ */
+public final class BookConnectionDensityReport {
+
+    private static final int SEED_BOOKS = 100_000;
+    private static final int SETTLE_SECONDS = 10;
+    //Small client buffers make the export stall after a few KB instead of after megabytes
+    private static final int CLIENT_RECEIVE_BUFFER = 4096;
+
+    private BookConnectionDensityReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = Arrays.stream((args.length > 0 ? args[0] : "1000,4000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-16s %11s %8s %10s %12s %8s %15s%n",
+                "stack", "connections", "streams", "RSS MB", "KB/conn", "threads", "threads/conn");
+        for (String stack : new String[]{"servlet", "servlet-virtual", "reactive"}) {
+            int port = freePort();
+            Process server = startServer(port, stack);
+            try {
+                String baseUrl = "http://localhost:" + port;
+                awaitServer(baseUrl);
+                seed(baseUrl);
+                long pid = server.pid();
+                Thread.sleep(TimeUnit.SECONDS.toMillis(SETTLE_SECONDS));
+                long idleRss = procStatus(pid, "VmRSS:");
+                long idleThreads = procStatus(pid, "Threads:");
+                System.out.printf("%-16s %11d %8s %10d %12s %8d %15s%n", stack, 0, "-", idleRss >> 10, "-", idleThreads, "-");
+                for (int connections : connectionCounts) {
+                    List<Socket> clients = openStalledExports(port, connections);
+                    try {
+                        Thread.sleep(TimeUnit.SECONDS.toMillis(SETTLE_SECONDS));
+                        long rss = procStatus(pid, "VmRSS:");
+                        long threads = procStatus(pid, "Threads:");
+                        System.out.printf("%-16s %11d %8d %10d %12.1f %8d %15.3f%n", stack, connections,
+                                startedStreams(clients), rss >> 10, (rss - idleRss) / (double) connections,
+                                threads, (threads - idleThreads) / (double) connections);
+                    } finally {
+                        for (Socket client : clients) {
+                            client.close();
+                        }
+                    }
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(SETTLE_SECONDS));
+                }
+            } finally {
+                server.destroy();
+                server.waitFor(30, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    //Sends the requests by hand so nothing reads the responses
+    private static List<Socket> openStalledExports(int port, int connections) throws IOException {
+        byte[] request = ("GET /books/export HTTP/1.1\r\nHost: localhost:" + port + "\r\nAccept: application/x-ndjson\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        List<Socket> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Socket client = new Socket();
+            client.setReceiveBufferSize(CLIENT_RECEIVE_BUFFER);
+            client.connect(new InetSocketAddress("localhost", port), 30_000);
+            OutputStream out = client.getOutputStream();
+            out.write(request);
+            out.flush();
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    //Clients holding unread response bytes, the others still wait for the server to start their export
+    private static int startedStreams(List<Socket> clients) throws IOException {
+        int started = 0;
+        for (Socket client : clients) {
+            if (client.getInputStream().available() > 0) {
+                started++;
+            }
+        }
+        return started;
+    }
+
+    //Value of a /proc/<pid>/status line, in KB for memory lines
+    private static long procStatus(long pid, String key) throws IOException {
+        for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"))) {
+            if (line.startsWith(key)) {
+                return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+            }
+        }
+        throw new IllegalStateException(key + " is missing from the status of process " + pid);
+    }
+
+    private static Process startServer(int port, String stack) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        return new ProcessBuilder(java.toString(), "-Xms1g", "-Xmx1g", "-cp", System.getProperty("java.class.path"),
+                MyApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.profiles.active=" + ("reactive".equals(stack) ? "reactive" : "default"),
+                "--book.server.virtual-threads=" + "servlet-virtual".equals(stack),
+                "--book.id.state-file=",
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=10000",
+                "--logging.level.root=warn")
+                .inheritIO()
+                .start();
+    }
+
+    private static void awaitServer(String baseUrl) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/1")).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                //Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The server did not start at " + baseUrl);
+    }
+
+    private static void seed(String baseUrl) throws IOException, InterruptedException {
+        StringBuilder books = new StringBuilder();
+        for (int i = 1; i <= SEED_BOOKS; i++) {
+            books.append("{\"bookId\":").append(i).append(",\"bookName\":\"Seed book ").append(i).append("\"}\n");
+        }
+        HttpResponse<Void> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/batch"))
+                .header("Content-Type", BookResource.NDJSON)
+                .POST(HttpRequest.BodyPublishers.ofString(books.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding the catalog failed with status " + response.statusCode());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
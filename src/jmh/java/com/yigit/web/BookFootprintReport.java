@@ -0,0 +1,110 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reports the heap bytes retained per book, measured with JOL, for the former mutable book
+ * with a boxed id and a java.util.Date, and for the immutable book with and without shared names.
+ * Then loads a catalog through a BookService over the heap and the off-heap store and reports
+ * what the store, the stamps and indexes of the service, and the JSON cache retain per book,
+ * since those stay on the heap whichever store keeps the books.
+ * Fails when the immutable book is not smaller. Run with gradle bookFootprint.
+ */
+public final class BookFootprintReport {
+
+    private static final int SAMPLE_SIZE = 100_000;
+
+    private BookFootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        Object[] mutableBooks = new Object[SAMPLE_SIZE];
+        Object[] books = new Object[SAMPLE_SIZE];
+        Object[] sharedNameBooks = new Object[SAMPLE_SIZE];
+        long now = System.currentTimeMillis();
+        String sharedName = "Book";
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            //Ids start above the Integer cache, as they do in a large catalog
+            int id = 1_000 + i;
+            mutableBooks[i] = new MutableBook(id, "Book " + id, new Date(now));
+            books[i] = new Book(id, "Book " + id, Instant.ofEpochMilli(now));
+            sharedNameBooks[i] = new Book(id, sharedName, Instant.ofEpochMilli(now));
+        }
+
+        long before = bytesPerBook(mutableBooks);
+        long after = bytesPerBook(books);
+        long afterShared = bytesPerBook(sharedNameBooks);
+        System.out.println("Retained bytes per book");
+        System.out.printf("  mutable book, Integer id and Date   %4d%n", before);
+        System.out.printf("  immutable book, int id and Instant  %4d%n", after);
+        System.out.printf("  immutable book, shared name         %4d%n", afterShared);
+
+        System.out.println("Retained heap bytes per book, catalog written through the BookService");
+        serviceFootprint("memory", new InMemoryBookRepository());
+        serviceFootprint("offheap", new OffHeapBookRepository());
+        if (after >= before) {
+            System.err.println("The immutable book is not smaller than the mutable book");
+            System.exit(1);
+        }
+    }
+
+    //Each graph holds the one before, so the differences are what each layer adds
+    private static void serviceFootprint(String storeName, BookRepository store) {
+        BookIdAllocator idAllocator = new BookIdAllocator(64, "");
+        List<BookChangeListener> indexes = List.of(new BookSearchIndex(store, BookWriteBehind.DISABLED),
+                new BookDateIndex(store, BookWriteBehind.DISABLED));
+        BookService bookService = new BookService(store, idAllocator, new BookJournal("", 0, idAllocator),
+                BookWriteBehind.DISABLED, indexes, BookMetrics.DISABLED);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        BookJsonCache jsonCache = new BookJsonCache(objectMapper);
+
+        long now = System.currentTimeMillis();
+        List<Book> batch = new ArrayList<>(SAMPLE_SIZE);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            batch.add(new Book(0, "Book " + i, Instant.ofEpochMilli(now + i * 1000L)));
+        }
+        bookService.addBooks(batch, 0);
+        bookService.forEachBook(book -> {
+            try {
+                jsonCache.toJson(book);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        int books = store.count();
+        long storeBytes = GraphLayout.parseInstance(store).totalSize();
+        long serviceBytes = GraphLayout.parseInstance(bookService).totalSize();
+        long cacheBytes = GraphLayout.parseInstance(bookService, jsonCache).totalSize();
+        System.out.printf("  %-7s store                      %4d%n", storeName, storeBytes / books);
+        System.out.printf("  %-7s stamps and indexes         %4d%n", storeName, (serviceBytes - storeBytes) / books);
+        System.out.printf("  %-7s JSON cache                 %4d%n", storeName, (cacheBytes - serviceBytes) / books);
+    }
+
+    private static long bytesPerBook(Object[] books) {
+        GraphLayout layout = GraphLayout.parseInstance(books);
+        long arrayBytes = GraphLayout.parseInstance((Object) new Object[books.length]).totalSize();
+        return (layout.totalSize() - arrayBytes) / books.length;
+    }
+
+    //Shape of the book before it became immutable
+    private static final class MutableBook {
+        private Integer bookId;
+        private String bookName;
+        private Date publishedDate;
+
+        MutableBook(Integer bookId, String bookName, Date publishedDate) {
+            this.bookId = bookId;
+            this.bookName = bookName;
+            this.publishedDate = publishedDate;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.yigit.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Id allocation throughput with 64 writers, block reservation against a single shared counter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class BookIdAllocatorBenchmark {
+
+    private BookIdAllocator allocator;
+    private AtomicInteger counter;
+
+    @Setup
+    public void setUp() {
+        //No state file, the benchmark measures the allocation and not the disk
+        allocator = new BookIdAllocator(64, "");
+        counter = new AtomicInteger();
+    }
+
+    @Benchmark
+    public int blockAllocator() {
+        return allocator.nextId();
+    }
+
+    @Benchmark
+    public int sharedCounter() {
+        return counter.incrementAndGet();
+    }
+}
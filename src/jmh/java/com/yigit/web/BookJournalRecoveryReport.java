@@ -0,0 +1,66 @@
+package com.yigit.web;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Logs a catalog through the book journal, lets it snapshot, then reports how long reopening the
+ * journal into an empty store takes. Run with gradle bookJournalReport -Pbooks=10000000.
+ */
+public final class BookJournalRecoveryReport {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private BookJournalRecoveryReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        String store = args.length > 1 ? args[1] : "memory";
+        Path directory = Files.createTempDirectory("book-journal-report");
+        //Snapshot half way, so recovery maps a snapshot and replays a log tail
+        long snapshotAfterBytes = bookCount * 34L / 2;
+
+        BookJournal journal = new BookJournal(directory.toString(), snapshotAfterBytes, new BookIdAllocator(64, ""));
+        BookRepository repository = journal.open(newStore(store));
+        long writeStart = System.nanoTime();
+        long date = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= bookCount; id++) {
+            batch.add(new Book(id, "Book " + id, Instant.ofEpochMilli(date + id * 1000L)));
+            if (batch.size() == BATCH_SIZE || id == bookCount) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        journal.close();
+        long writeMillis = (System.nanoTime() - writeStart) / 1_000_000;
+        repository = null;
+        System.gc();
+
+        long recoveryStart = System.nanoTime();
+        BookJournal reopened = new BookJournal(directory.toString(), Long.MAX_VALUE, new BookIdAllocator(64, ""));
+        BookRepository recovered = reopened.open(newStore(store));
+        long recoveryMillis = (System.nanoTime() - recoveryStart) / 1_000_000;
+        reopened.close();
+
+        System.out.printf("Book journal with %,d books, %s store%n", recovered.count(), store);
+        System.out.printf("  write time     %,8d ms%n", writeMillis);
+        System.out.printf("  recovery time  %,8d ms%n", recoveryMillis);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.sorted().forEach(file -> {
+                System.out.printf("  %-16s %,8d KB%n", file.getFileName(), file.toFile().length() >> 10);
+                file.toFile().delete();
+            });
+        }
+        Files.delete(directory);
+    }
+
+    private static BookRepository newStore(String store) {
+        return "offheap".equals(store) ? new OffHeapBookRepository() : new InMemoryBookRepository();
+    }
+}
@@ -0,0 +1,106 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a list of books the way GET /books does, through the default Jackson converter
+ * and through the converter backed by the BookJsonCache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookJsonBenchmark {
+
+    private static final Type BOOK_LIST = new ParameterizedTypeReference<List<Book>>() {
+    }.getType();
+
+    @Param({"100", "10000"})
+    int bookCount;
+
+    private List<Book> books;
+    private MappingJackson2HttpMessageConverter jacksonConverter;
+    private CachedBookJsonHttpMessageConverter cachedConverter;
+    private final BufferOutputMessage output = new BufferOutputMessage();
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        BookIdAllocator idAllocator = new BookIdAllocator(64, "");
+        BookService bookService = new BookService(new InMemoryBookRepository(), idAllocator, new BookJournal("", 0, idAllocator),
+                BookWriteBehind.DISABLED, Collections.emptyList(), BookMetrics.DISABLED);
+        Instant publishedDate = Instant.now();
+        for (int i = 0; i < bookCount; i++) {
+            bookService.addBook(new Book(0, "Book " + i, publishedDate));
+        }
+        books = bookService.findBooks(0, bookCount);
+        jacksonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        cachedConverter = new CachedBookJsonHttpMessageConverter(new BookJsonCache(objectMapper), objectMapper);
+    }
+
+    @Benchmark
+    public int jackson() throws IOException {
+        output.reset();
+        jacksonConverter.write(books, BOOK_LIST, MediaType.APPLICATION_JSON, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public int cachedBytes() throws IOException {
+        output.reset();
+        cachedConverter.write(books, BOOK_LIST, MediaType.APPLICATION_JSON, output);
+        return output.size();
+    }
+
+    private static final class BufferOutputMessage implements HttpOutputMessage {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+        private HttpHeaders headers = new HttpHeaders();
+
+        void reset() {
+            body.reset();
+            headers = new HttpHeaders();
+        }
+
+        int size() {
+            return body.size();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
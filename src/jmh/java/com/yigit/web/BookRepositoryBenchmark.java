@@ -0,0 +1,69 @@
+package com.yigit.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a lookup by book id through the former ArrayList scan with the indexed in-memory store
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookRepositoryBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int catalogSize;
+
+    private List<Book> list;
+    private InMemoryBookRepository repository;
+
+    @Setup
+    public void setUp() {
+        Instant publishedDate = Instant.now();
+        list = new ArrayList<>(catalogSize);
+        repository = new InMemoryBookRepository();
+        for (int id = 1; id <= catalogSize; id++) {
+            Book book = new Book(id, "Book " + id, publishedDate);
+            list.add(book);
+            repository.save(book);
+        }
+    }
+
+    @Benchmark
+    public Book listScan() {
+        int id = randomId();
+        for (Book book : list) {
+            if (book.getBookId() == id) {
+                return book;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Book indexedLookup() {
+        return repository.findById(randomId());
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(catalogSize) + 1;
+    }
+}
@@ -0,0 +1,101 @@
+package com.yigit.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Round trips through the whole servlet web layer of the application without a socket:
+ * dispatching, argument binding, the BookService and message conversion, with the application
+ * properties of a default start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookResourceBenchmark {
+
+    private static final int SEED_BOOKS = 10_000;
+    private static final int POSTED_IDS = 1 << 16;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(MyApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0", "--book.id.state-file=", "--logging.level.root=warn");
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        BookService bookService = context.getBean(BookService.class);
+        Instant publishedDate = Instant.now();
+        for (int id = 4; id <= SEED_BOOKS; id++) {
+            bookService.addBook(new Book(id, "Seed book " + id, publishedDate));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getBook() throws Exception {
+        return mockMvc.perform(get("/books/{bookId}", randomId()))
+                .andReturn().getResponse().getContentAsByteArray().length;
+    }
+
+    @Benchmark
+    public int getPage() throws Exception {
+        return mockMvc.perform(get("/books").param("after", Integer.toString(randomId())).param("limit", "100"))
+                .andReturn().getResponse().getContentAsByteArray().length;
+    }
+
+    @Benchmark
+    public int putBook() throws Exception {
+        int bookId = randomId();
+        return mockMvc.perform(put("/books/{id}", bookId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\":" + bookId + ",\"bookName\":\"Renamed book " + bookId + "\"}"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    //Posted books reuse a fixed range of ids above the seed, so the catalog stops growing
+    @Benchmark
+    public int postBook() throws Exception {
+        int bookId = SEED_BOOKS + 1 + ThreadLocalRandom.current().nextInt(POSTED_IDS);
+        return mockMvc.perform(post("/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookId\":" + bookId + ",\"bookName\":\"Posted book " + bookId + "\"}"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(SEED_BOOKS) + 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.yigit.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the search index with filtering all books, the way clients searched before.
+ * Sample time mode reports the percentiles, the index should stay below a millisecond at p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BookSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "ten", "vos", "dun", "el", "fa", "gri",
+            "hol", "is", "jor", "ny", "pel", "qua", "sen", "tor", "ul", "wy"};
+    private static final int VOCABULARY_SIZE = 20_000;
+    private static final int RESULT_LIMIT = 20;
+
+    @Param({"100000", "10000000"})
+    int catalogSize;
+
+    private InMemoryBookRepository repository;
+    private BookSearchIndex index;
+    private String[] vocabulary;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        repository = new InMemoryBookRepository();
+        index = new BookSearchIndex(repository, BookWriteBehind.DISABLED);
+        Instant publishedDate = Instant.now();
+        for (int id = 1; id <= catalogSize; id++) {
+            Book book = new Book(id, word(random) + " " + word(random) + " " + word(random), publishedDate);
+            repository.save(book);
+            index.bookChanged(null, book);
+        }
+    }
+
+    @Benchmark
+    public List<Book> indexedWord() {
+        return index.search(word(ThreadLocalRandom.current()), RESULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> indexedTwoWords() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(word(random) + " " + word(random), RESULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> indexedPrefix() {
+        return index.search(word(ThreadLocalRandom.current()).substring(0, 3), RESULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<Book> scanAllBooks() {
+        String word = word(ThreadLocalRandom.current());
+        List<Book> found = new ArrayList<>(RESULT_LIMIT);
+        for (Book book : repository.findAll()) {
+            if (book.getBookName().toLowerCase(Locale.ROOT).contains(word)) {
+                found.add(book);
+                if (found.size() == RESULT_LIMIT) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private String word(Random random) {
+        return vocabulary[random.nextInt(vocabulary.length)];
+    }
+}
@@ -0,0 +1,205 @@
+package com.yigit.web;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Compares the Tomcat worker pool with virtual threads at a number of concurrent connections.
+ * Every mode starts the application in its own JVM with the journal on, so book writes block on
+ * the disk the way they do in production. Every connection is one client virtual thread which
+ * reads a random book four times out of five and adds a book otherwise, back to back. The report
+ * lists requests per second and latency percentiles per mode and connection count.
+ * Run with gradle bookServerLoadReport -Pconnections=1000,10000 -Pseconds=20.
+ */
+public final class BookServerLoadReport {
+
+    private static final int SEED_BOOKS = 10_000;
+    private static final int WARMUP_SECONDS = 5;
+
+    private BookServerLoadReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = Arrays.stream((args.length > 0 ? args[0] : "1000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.printf("%-9s %11s %10s %9s %9s %9s %9s %7s%n",
+                "threads", "connections", "requests/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            Path journal = Files.createTempDirectory("book-load-journal");
+            int port = freePort();
+            Process server = startServer(port, virtualThreads, journal);
+            try {
+                String baseUrl = "http://localhost:" + port;
+                awaitServer(baseUrl);
+                seed(baseUrl);
+                for (int connections : connectionCounts) {
+                    run(baseUrl, connections, WARMUP_SECONDS);
+                    Result result = run(baseUrl, connections, seconds);
+                    System.out.printf("%-9s %11d %10.0f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                            virtualThreads ? "virtual" : "platform", connections, result.count / (double) seconds,
+                            result.percentile(0.50), result.percentile(0.90), result.percentile(0.99),
+                            result.percentile(1.0), result.errors);
+                }
+            } finally {
+                server.destroy();
+                server.waitFor(30, TimeUnit.SECONDS);
+                delete(journal);
+            }
+        }
+    }
+
+    //Closed loop: every connection sends its next request as soon as the previous one is answered
+    private static Result run(String baseUrl, int connections, int seconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Queue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        //Closing the client closes its connections, so runs do not add up open sockets
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+             ExecutorService connectionThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                connectionThreads.execute(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(nextRequest(baseUrl), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    latencies.add(Arrays.copyOf(samples, count));
+                });
+            }
+        }
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private static HttpRequest nextRequest(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(5) == 0) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/books"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"bookName\":\"Load book " + random.nextInt() + "\"}"))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + (random.nextInt(SEED_BOOKS) + 1))).GET().build();
+    }
+
+    private static Process startServer(int port, boolean virtualThreads, Path journal) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        return new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                MyApplication.class.getName(),
+                "--server.port=" + port,
+                "--book.server.virtual-threads=" + virtualThreads,
+                "--book.journal.dir=" + journal,
+                "--book.id.state-file=",
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=10000",
+                "--logging.level.root=warn")
+                .inheritIO()
+                .start();
+    }
+
+    private static void awaitServer(String baseUrl) throws InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/1")).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                //Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The server did not start at " + baseUrl);
+    }
+
+    private static void seed(String baseUrl) throws IOException, InterruptedException {
+        StringBuilder books = new StringBuilder();
+        for (int i = 1; i <= SEED_BOOKS; i++) {
+            books.append("{\"bookId\":").append(i).append(",\"bookName\":\"Seed book ").append(i).append("\"}\n");
+        }
+        HttpResponse<Void> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/batch"))
+                .header("Content-Type", BookResource.NDJSON)
+                .POST(HttpRequest.BodyPublishers.ofString(books.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Seeding the catalog failed with status " + response.statusCode());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static final class Result {
+        private final long[] latencies;
+        private final long count;
+        private final long errors;
+
+        Result(long[] latencies, long errors) {
+            this.latencies = latencies;
+            this.count = latencies.length;
+            this.errors = errors;
+        }
+
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
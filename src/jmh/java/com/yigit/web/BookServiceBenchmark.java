@@ -0,0 +1,87 @@
+package com.yigit.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookService operations over an in-memory catalog without journal, indexes or metrics, so the
+ * numbers show the service and the store alone.
+ * Added books reuse a fixed range of ids above the catalog, so the catalog keeps its size no
+ * matter how long the benchmark runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookServiceBenchmark {
+
+    private static final int ADDED_IDS = 1 << 16;
+
+    @Param({"10000", "1000000"})
+    int catalogSize;
+
+    private BookService bookService;
+    private List<Book> renamed;
+
+    @Setup
+    public void setUp() {
+        BookIdAllocator idAllocator = new BookIdAllocator(64, "");
+        bookService = new BookService(new InMemoryBookRepository(), idAllocator, new BookJournal("", 0, idAllocator),
+                BookWriteBehind.DISABLED, Collections.emptyList(), BookMetrics.DISABLED);
+        Instant publishedDate = Instant.now();
+        List<Book> books = new ArrayList<>(catalogSize);
+        for (int id = 1; id <= catalogSize; id++) {
+            books.add(new Book(id, "Book " + id, publishedDate));
+        }
+        bookService.addBooks(books, 0);
+        renamed = new ArrayList<>(1024);
+        for (int i = 0; i < 1024; i++) {
+            renamed.add(new Book(0, "Renamed book " + i, publishedDate));
+        }
+    }
+
+    @Benchmark
+    public Book searchHit() {
+        return bookService.searchBook(ThreadLocalRandom.current().nextInt(catalogSize) + 1);
+    }
+
+    @Benchmark
+    public Book searchMiss() {
+        return bookService.searchBook(-ThreadLocalRandom.current().nextInt(catalogSize) - 1);
+    }
+
+    @Benchmark
+    public Book updateBook() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return bookService.updateBook(renamed.get(random.nextInt(renamed.size()))
+                .withBookId(random.nextInt(catalogSize) + 1));
+    }
+
+    //16 writers adding books at once, contending on the id allocator, the store and the stamps
+    @Benchmark
+    @Threads(16)
+    public Book addBookContended() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return bookService.addBook(renamed.get(random.nextInt(renamed.size()))
+                .withBookId(catalogSize + 1 + random.nextInt(ADDED_IDS)));
+    }
+}
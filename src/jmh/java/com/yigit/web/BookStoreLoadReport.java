@@ -0,0 +1,104 @@
+package com.yigit.web;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads a catalog into the heap or the off-heap book store and reports the garbage collector
+ * work and the memory the store retains: collections and pause time while loading, the longest
+ * single pause, the live heap and direct memory once loaded and the length of a full collection
+ * over the loaded catalog.
+ * Run with gradle bookStoreReport -Pstore=memory|offheap -Pbooks=50000000, one store per JVM so
+ * the numbers of one store do not include the garbage of the other.
+ */
+public final class BookStoreLoadReport {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private BookStoreLoadReport() {
+    }
+
+    public static void main(String[] args) {
+        String store = args.length > 0 ? args[0] : "memory";
+        int bookCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+        BookRepository repository = "offheap".equals(store) ? new OffHeapBookRepository() : new InMemoryBookRepository();
+
+        AtomicLong longestPause = new AtomicLong();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    long duration = GarbageCollectionNotificationInfo
+                            .from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+                    longestPause.accumulateAndGet(duration, Math::max);
+                }
+            }, null, null);
+        }
+
+        long startCount = collectionCount();
+        long startTime = collectionTime();
+        long loadStart = System.nanoTime();
+        long date = Instant.parse("2000-01-01T00:00:00Z").toEpochMilli();
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= bookCount; id++) {
+            batch.add(new Book(id, "Book " + id, Instant.ofEpochMilli(date + id * 1000L)));
+            if (batch.size() == BATCH_SIZE || id == bookCount) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+        long loadCollections = collectionCount() - startCount;
+        long loadCollectionMillis = collectionTime() - startTime;
+        long loadLongestPause = longestPause.get();
+
+        long fullStart = System.nanoTime();
+        System.gc();
+        long fullMillis = (System.nanoTime() - fullStart) / 1_000_000;
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        System.out.printf("Book store %s with %,d books%n", store, repository.count());
+        System.out.printf("  load time                 %,10d ms%n", loadMillis);
+        System.out.printf("  collections while loading %,10d%n", loadCollections);
+        System.out.printf("  collection time           %,10d ms%n", loadCollectionMillis);
+        System.out.printf("  longest collection        %,10d ms%n", loadLongestPause);
+        System.out.printf("  full collection, loaded   %,10d ms%n", fullMillis);
+        System.out.printf("  heap used, loaded         %,10d MB%n", heapUsed >> 20);
+        System.out.printf("  direct memory             %,10d MB%n", directMemoryUsed() >> 20);
+        //Keeps the store reachable until the measurements are taken
+        System.out.println("  sample " + repository.findById(bookCount));
+    }
+
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static long directMemoryUsed() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
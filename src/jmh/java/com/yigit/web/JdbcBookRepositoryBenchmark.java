@@ -0,0 +1,120 @@
+package com.yigit.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory store with the JDBC store on an in-memory H2 database, through a
+ * connection pool as the application uses it, and with the JDBC store behind the write-behind
+ * buffer. Writes replace books of the catalog, so the catalog keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JdbcBookRepositoryBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"memory", "jdbc", "jdbc-write-behind"})
+    String store;
+
+    @Param({"100000"})
+    int catalogSize;
+
+    private BookRepository repository;
+    private WriteBehindBookRepository writeBehind;
+    private HikariDataSource dataSource;
+    private Instant publishedDate;
+
+    @Setup
+    public void setUp() {
+        if (store.startsWith("jdbc")) {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:books-benchmark;DB_CLOSE_DELAY=-1");
+            repository = new JdbcBookRepository(dataSource);
+            if ("jdbc-write-behind".equals(store)) {
+                writeBehind = new WriteBehindBookRepository(repository, 65536, 1000, 10, false, BookMetrics.DISABLED);
+                repository = writeBehind;
+            }
+        } else {
+            repository = new InMemoryBookRepository();
+        }
+        publishedDate = Instant.now();
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= catalogSize; id++) {
+            batch.add(new Book(id, "Book " + id, publishedDate));
+            if (batch.size() == BATCH_SIZE) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public Book findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<Book> findPage() {
+        return repository.findPage(randomId(), 100);
+    }
+
+    @Benchmark
+    public Book save() {
+        int id = randomId();
+        return repository.save(new Book(id, "Saved book " + id, publishedDate));
+    }
+
+    @Benchmark
+    public int saveAllBatch() {
+        int first = ThreadLocalRandom.current().nextInt(catalogSize - BATCH_SIZE) + 1;
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = first; id < first + BATCH_SIZE; id++) {
+            batch.add(new Book(id, "Batched book " + id, publishedDate));
+        }
+        repository.saveAll(batch);
+        return batch.size();
+    }
+
+    //The whole catalog, keyset page by keyset page for the JDBC store
+    @Benchmark
+    public int findAll() {
+        return repository.findAll().size();
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(catalogSize) + 1;
+    }
+}
@@ -1,41 +1,41 @@
 package com.yigit.web;
 
-import java.util.Date;
-
-public class Book {
-    private Integer bookId;
-    private String bookName;
-    private Date publishedDate;
-
-    public Book(Integer bookId, String bookName, Date publishedDate) {
-        super();
+import java.time.Instant;
+
+/**
+ * A book of the catalog. Books are immutable, a change creates a new book through one of the
+ * with methods, so stored books can be handed out without defensive copies.
+ * A book id of 0 means the id has not been assigned yet.
+ */
+public final class Book {
+    private final int bookId;
+    private final String bookName;
+    private final Instant publishedDate;
+
+    public Book(int bookId, String bookName, Instant publishedDate) {
         this.bookId = bookId;
         this.bookName = bookName;
         this.publishedDate = publishedDate;
     }
 
-    public Integer getBookId() {
+    public int getBookId() {
         return bookId;
     }
 
-    public void setBookId(Integer bookId) {
-        this.bookId = bookId;
-    }
-
     public String getBookName() {
         return bookName;
     }
 
-    public void setBookName(String bookName) {
-        this.bookName = bookName;
+    public Instant getPublishedDate() {
+        return publishedDate;
     }
 
-    public Date getPublishedDate() {
-        return publishedDate;
+    public Book withBookId(int bookId) {
+        return new Book(bookId, bookName, publishedDate);
     }
 
-    public void setPublishedDate(Date publishedDate) {
-        this.publishedDate = publishedDate;
+    public Book withBookName(String bookName) {
+        return new Book(bookId, bookName, publishedDate);
     }
 
     @Override
@@ -0,0 +1,45 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//Outcome of one book of a batch request, status uses the HTTP status codes of the single book routes
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookBatchItem {
+    private final int index;
+    private final Integer bookId;
+    private final int status;
+    private final String error;
+
+    public BookBatchItem(int index, Integer bookId, int status, String error) {
+        this.index = index;
+        this.bookId = bookId;
+        this.status = status;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Integer getBookId() {
+        return bookId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "BookBatchItem{" +
+                "index=" + index +
+                ", bookId=" + bookId +
+                ", status=" + status +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
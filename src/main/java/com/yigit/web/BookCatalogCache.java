@@ -0,0 +1,215 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the response of GET /books for the whole catalog as JSON bytes and gzip bytes, switched
+ * on with book.catalog-cache.enabled=true. Clients which accept gzip get the compressed bytes
+ * without compressing the catalog on every request.
+ * The response is tagged with the catalog ETag read before the catalog is walked, and every
+ * write through the BookService changes the ETag, which retires the response. The ETag is weak,
+ * so the JSON and gzip bytes may share it. The first request after a write builds the new
+ * response while the others wait for it.
+ * Responses smaller than server.compression.min-response-size are not compressed.
+ * A catalog whose JSON outgrows book.catalog-cache.max-size is not kept: get() returns null for
+ * its ETag and the caller serializes the catalog as usual, the build is tried again after the
+ * next write.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "book.catalog-cache.enabled", havingValue = "true")
+public class BookCatalogCache {
+
+    private final BookService bookService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int gzipLevel;
+    private final long minCompressedSize;
+    private final long maxSize;
+
+    private final ReentrantLock building = new ReentrantLock();
+    private volatile Entry entry;
+
+    public BookCatalogCache(BookService bookService, ObjectMapper objectMapper,
+                            @Value("${book.catalog-cache.gzip-level:6}") int gzipLevel,
+                            @Value("${server.compression.min-response-size:2KB}") DataSize minCompressedSize,
+                            @Value("${book.catalog-cache.max-size:64MB}") DataSize maxSize) {
+        this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(Book.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.gzipLevel = gzipLevel;
+        this.minCompressedSize = minCompressedSize.toBytes();
+        this.maxSize = maxSize.toBytes();
+    }
+
+    /**
+     * @return response of the current catalog, or null when the catalog is above book.catalog-cache.max-size
+     */
+    public Entry get() {
+        Entry current = current();
+        return current.json == null ? null : current;
+    }
+
+    private Entry current() {
+        String eTag = bookService.catalogETag();
+        Entry current = entry;
+        if (current != null && current.eTag.equals(eTag)) {
+            return current;
+        }
+        building.lock();
+        try {
+            current = entry;
+            eTag = bookService.catalogETag();
+            if (current != null && current.eTag.equals(eTag)) {
+                return current;
+            }
+            current = build(eTag);
+            entry = current;
+            return current;
+        } finally {
+            building.unlock();
+        }
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding header of the request, or null
+     * @return true when the header gives gzip a weight above 0, an entry for gzip overrides *
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    quality = parseQuality(parameter.substring(2));
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (name.equals("*")) {
+                any = Math.max(any, quality);
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
+
+    //A malformed weight counts as a refusal
+    private static double parseQuality(String quality) {
+        try {
+            return Double.parseDouble(quality);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param json  bytes to compress
+     * @param level deflate level from 1, fastest, to 9, smallest
+     * @return gzip encoding of the bytes
+     */
+    public static byte[] gzip(byte[] json, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (OutputStream gzip = new LeveledGzipOutputStream(out, level)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    //The catalog is walked page by page into one buffer, no list of every book is built.
+    //The walk stops once the buffer passes max-size, the entry then only remembers the ETag.
+    private Entry build(String eTag) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        int[] books = new int[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            bookService.forEachBook(book -> {
+                try {
+                    writer.writeValue(generator, book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                books[0]++;
+                //The generator buffers a few KB before they reach out, the check may lag by as much
+                if (out.size() > maxSize) {
+                    throw TooLarge.INSTANCE;
+                }
+            });
+            generator.writeEndArray();
+        } catch (TooLarge e) {
+            return new Entry(eTag, books[0], null, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] json = out.toByteArray();
+        byte[] compressed = json.length < minCompressedSize ? null : gzip(json, gzipLevel);
+        return new Entry(eTag, books[0], json, compressed);
+    }
+
+    public static final class Entry {
+        private final String eTag;
+        private final int bookCount;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        Entry(String eTag, int bookCount, byte[] json, byte[] gzip) {
+            this.eTag = eTag;
+            this.bookCount = bookCount;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public int getBookCount() {
+            return bookCount;
+        }
+
+        //Callers must not modify the bytes
+        public byte[] getJson() {
+            return json;
+        }
+
+        //Null when the catalog is below the compression threshold
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+
+    //Ends the walk of a catalog above max-size, it carries no stack trace so one instance serves all
+    private static final class TooLarge extends RuntimeException {
+        static final TooLarge INSTANCE = new TooLarge();
+
+        private TooLarge() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(level);
+        }
+    }
+}
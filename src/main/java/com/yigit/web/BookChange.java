@@ -0,0 +1,47 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//One write of the change feed. book is the book as it is now, which may already be newer than the write
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookChange {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+
+    private final long sequence;
+    private final String type;
+    private final int bookId;
+    private final Book book;
+
+    public BookChange(long sequence, String type, int bookId, Book book) {
+        this.sequence = sequence;
+        this.type = type;
+        this.bookId = bookId;
+        this.book = book;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    @Override
+    public String toString() {
+        return "BookChange{" +
+                "sequence=" + sequence +
+                ", type='" + type + '\'' +
+                ", bookId=" + bookId +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+package com.yigit.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change log of the catalog, every book write gets the next sequence number.
+ * The last book.changes.capacity writes are kept in a ring buffer. A write claims its sequence
+ * number and then fills its slot, readers stop at the first slot which is not filled yet, so
+ * a client never skips a change. Clients which fall further behind than the ring reaches are
+ * told to resync. Sequences start again on every start, the epoch tells the runs apart.
+ * The BookService hands the writes of one book to its listeners in the order they were stored,
+ * so the changes of a book are logged in that order too. The ring holds book ids only and the
+ * books are looked up when the changes are read, so every change carries the latest version of
+ * its book.
+ */
+@Component
+public class BookChangeFeed implements BookChangeListener {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final BookRepository bookRepository;
+    private final BookWriteBehind writeBehind;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    //Writers only take the lock to wake readers up while any are waiting
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private static final class Entry {
+        final long sequence;
+        final int bookId;
+        final boolean created;
+
+        Entry(long sequence, int bookId, boolean created) {
+            this.sequence = sequence;
+            this.bookId = bookId;
+            this.created = created;
+        }
+    }
+
+    public BookChangeFeed(BookRepository bookRepository, BookWriteBehind writeBehind,
+                          @Value("${book.changes.capacity:65536}") int capacity) {
+        this.bookRepository = bookRepository;
+        this.writeBehind = writeBehind;
+        //Power of two, so a sequence finds its slot with a mask
+        this.capacity = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    @Override
+    public void bookChanged(Book previous, Book current) {
+        long sequence = lastSequence.incrementAndGet();
+        Entry entry = new Entry(sequence, current.getBookId(), previous == null);
+        int slot = (int) (sequence & mask);
+        //A writer which stalled for a whole lap of the ring must not replace the newer entry
+        while (true) {
+            Entry old = slots.get(slot);
+            if ((old != null && old.sequence > sequence) || slots.compareAndSet(slot, old, entry)) {
+                break;
+            }
+        }
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return sequence of the latest change, a client starting from it gets every later change
+     */
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * @param clientEpoch epoch the client got with its sequence, or null to skip the check
+     * @param since       last sequence the client has seen, 0 for a client which has none
+     * @param limit       maximum number of changes
+     * @return changes after since, or a page which asks for a resync when they are gone
+     */
+    public BookChangePage read(String clientEpoch, long since, int limit) {
+        long last = lastSequence.get();
+        if ((clientEpoch != null && !epoch.equals(clientEpoch)) || since < 0 || since > last || since < last - capacity) {
+            return resync(last);
+        }
+        List<BookChange> changes = new ArrayList<>((int) Math.min(limit, last - since));
+        long sequence = since;
+        while (sequence < last && changes.size() < limit) {
+            long next = sequence + 1;
+            Entry entry = slots.get((int) (next & mask));
+            if (entry == null || entry.sequence < next) {
+                //Claimed but not filled yet, the client gets it with its next read
+                break;
+            }
+            if (entry.sequence > next) {
+                return resync(last);
+            }
+            changes.add(new BookChange(next, entry.created ? BookChange.CREATED : BookChange.UPDATED,
+                    entry.bookId, findBook(entry.bookId)));
+            sequence = next;
+        }
+        return new BookChangePage(epoch, sequence, false, changes);
+    }
+
+    /**
+     * Waits until a change after the sequence is logged
+     *
+     * @param after         last sequence the caller has seen
+     * @param timeoutMillis longest wait
+     * @return true when there is a change after the sequence, false when the wait timed out
+     */
+    public boolean awaitChange(long after, long timeoutMillis) throws InterruptedException {
+        if (lastSequence.get() > after) {
+            return true;
+        }
+        long left = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            while (lastSequence.get() <= after) {
+                if (left <= 0) {
+                    return false;
+                }
+                left = changed.awaitNanos(left);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * @param eventId id of a Server-Sent Event of the feed
+     * @return epoch of the event
+     */
+    public static String epochOf(String eventId) {
+        int separator = eventId.indexOf(':');
+        if (separator < 0) {
+            throw new InvalidBookQueryException("Event id " + eventId + " is not epoch:sequence");
+        }
+        return eventId.substring(0, separator);
+    }
+
+    /**
+     * @param eventId id of a Server-Sent Event of the feed
+     * @return sequence of the event
+     */
+    public static long sequenceOf(String eventId) {
+        try {
+            return Long.parseLong(eventId.substring(eventId.indexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidBookQueryException("Event id " + eventId + " is not epoch:sequence");
+        }
+    }
+
+    //Event ids carry the epoch, so a client reconnecting with Last-Event-ID after a restart resyncs
+    public static String eventId(String epoch, long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    private BookChangePage resync(long last) {
+        return new BookChangePage(epoch, last, true, Collections.emptyList());
+    }
+
+    private Book findBook(int bookId) {
+        Book book = writeBehind.findPending(bookId);
+        return book != null ? book : bookRepository.findById(bookId);
+    }
+}
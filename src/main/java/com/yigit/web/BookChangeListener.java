@@ -0,0 +1,17 @@
+package com.yigit.web;
+
+/**
+ * Gets told about every book the BookService writes. Components implementing it are picked up by
+ * the BookService, which also passes them every book already in the catalog when it starts.
+ * Listeners run on the writing thread after the store has the book, so they must be quick and
+ * safe for concurrent use. Writes of different books reach a listener concurrently, the writes
+ * of one book one after the other in the order they were stored, each with the book it replaced.
+ */
+public interface BookChangeListener {
+
+    /**
+     * @param previous book stored under the id before the write, or null for a new book
+     * @param current  book stored now
+     */
+    void bookChanged(Book previous, Book current);
+}
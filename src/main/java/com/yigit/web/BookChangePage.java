@@ -0,0 +1,39 @@
+package com.yigit.web;
+
+import java.util.List;
+
+/**
+ * Changes of the catalog after the sequence a client asked for, oldest first.
+ * The next request continues with since=sequence and epoch=epoch. When resyncRequired is set
+ * the changes the client needs are gone, it reloads the catalog and continues from sequence,
+ * which was taken before the reload so no change is missed.
+ */
+public class BookChangePage {
+    private final String epoch;
+    private final long sequence;
+    private final boolean resyncRequired;
+    private final List<BookChange> changes;
+
+    public BookChangePage(String epoch, long sequence, boolean resyncRequired, List<BookChange> changes) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.resyncRequired = resyncRequired;
+        this.changes = changes;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    public List<BookChange> getChanges() {
+        return changes;
+    }
+}
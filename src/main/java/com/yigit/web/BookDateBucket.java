@@ -0,0 +1,30 @@
+package com.yigit.web;
+
+import java.time.LocalDate;
+
+//Number of books published in the day or month starting at start
+public class BookDateBucket {
+    private final LocalDate start;
+    private final long count;
+
+    public BookDateBucket(LocalDate start, long count) {
+        this.start = start;
+        this.count = count;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BookDateBucket{" +
+                "start=" + start +
+                ", count=" + count +
+                '}';
+    }
+}
@@ -0,0 +1,228 @@
+package com.yigit.web;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Publication date index, kept up to date as books are written.
+ * A skip list keyed by the epoch milliseconds of the publication date holds the ids of the books
+ * published at that instant, so a date range is one range of the map ordered by date and book id.
+ * A second skip list keeps the number of books per UTC day, so counts per day or month read one
+ * entry per day however many books were published on it.
+ * Books without a publication date are not indexed. Dates are UTC.
+ */
+@Component
+public class BookDateIndex implements BookChangeListener {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int SCAN_CHUNK = 256;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final BookRepository bookRepository;
+    private final BookWriteBehind writeBehind;
+    private final ConcurrentSkipListMap<Long, BookIdSet> dates = new ConcurrentSkipListMap<>();
+    //Books per epoch day, days without books have no entry
+    private final ConcurrentSkipListMap<Long, Long> days = new ConcurrentSkipListMap<>();
+    //Adding the first and removing the last id of a date must not interleave
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public BookDateIndex(BookRepository bookRepository, BookWriteBehind writeBehind) {
+        this.bookRepository = bookRepository;
+        this.writeBehind = writeBehind;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    //Only a book added again under its id can change its date, renames leave the index alone
+    @Override
+    public void bookChanged(Book previous, Book current) {
+        Instant previousDate = previous == null ? null : previous.getPublishedDate();
+        if (previousDate != null && previousDate.equals(current.getPublishedDate())) {
+            return;
+        }
+        if (previousDate != null) {
+            remove(previousDate.toEpochMilli(), current.getBookId());
+        }
+        if (current.getPublishedDate() != null) {
+            add(current.getPublishedDate().toEpochMilli(), current.getBookId());
+        }
+    }
+
+    /**
+     * Books published in the range, ordered by publication date and book id. The page starts
+     * after the book given by afterDate and afterBookId when afterDate is set.
+     *
+     * @param from        first instant of the range, inclusive
+     * @param to          end of the range, exclusive
+     * @param afterDate   publication date of the last book of the previous page, or null
+     * @param afterBookId id of the last book of the previous page
+     * @param limit       maximum number of books
+     * @return at most limit books
+     */
+    public List<Book> findPublished(Instant from, Instant to, Instant afterDate, int afterBookId, int limit) {
+        List<Book> found = new ArrayList<>(Math.min(limit, SCAN_CHUNK));
+        long start = from.toEpochMilli();
+        long end = to.toEpochMilli();
+        boolean startInclusive = true;
+        if (afterDate != null) {
+            long cursor = afterDate.toEpochMilli();
+            if (cursor >= end) {
+                return found;
+            }
+            if (cursor >= start) {
+                if (collect(cursor, afterBookId, limit, found)) {
+                    return found;
+                }
+                start = cursor;
+                startInclusive = false;
+            }
+        }
+        for (Long date : range(start, startInclusive, end).keySet()) {
+            if (collect(date, Integer.MIN_VALUE, limit, found)) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Counts the books published in the range per day or month from the day counts, without
+     * reading any book or walking the dates of the range
+     *
+     * @param from   first instant of the range, inclusive, rounded down to the start of its day
+     * @param to     end of the range, exclusive, rounded up to the end of its day
+     * @param bucket ChronoUnit.DAYS or ChronoUnit.MONTHS
+     * @return buckets holding at least one book, in date order
+     */
+    public List<BookDateBucket> countPublished(Instant from, Instant to, ChronoUnit bucket) {
+        List<BookDateBucket> buckets = new ArrayList<>();
+        long firstDay = Math.floorDiv(from.toEpochMilli(), MILLIS_PER_DAY);
+        long lastDay = Math.floorDiv(to.toEpochMilli() - 1, MILLIS_PER_DAY);
+        if (to.toEpochMilli() == Long.MIN_VALUE || firstDay > lastDay) {
+            return buckets;
+        }
+        LocalDate current = null;
+        long count = 0;
+        long currentEnd = Long.MIN_VALUE;
+        for (Map.Entry<Long, Long> entry : days.subMap(firstDay, true, lastDay, true).entrySet()) {
+            long day = entry.getKey();
+            if (current == null || day >= currentEnd) {
+                if (current != null) {
+                    buckets.add(new BookDateBucket(current, count));
+                }
+                current = bucketStart(day, bucket);
+                currentEnd = current.plus(1, bucket).toEpochDay();
+                count = 0;
+            }
+            count += entry.getValue();
+        }
+        if (current != null) {
+            buckets.add(new BookDateBucket(current, count));
+        }
+        return buckets;
+    }
+
+    //Open ends of a date range reach to the first and last instant a book date can hold
+    static Instant startOfDay(LocalDate day) {
+        return day == null ? Instant.ofEpochMilli(Long.MIN_VALUE) : day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    static Instant endOfDay(LocalDate day) {
+        return day == null ? Instant.ofEpochMilli(Long.MAX_VALUE) : day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    static ChronoUnit bucketUnit(String bucket) {
+        switch (bucket) {
+            case "day":
+                return ChronoUnit.DAYS;
+            case "month":
+                return ChronoUnit.MONTHS;
+            default:
+                throw new InvalidBookQueryException("bucket must be day or month but was " + bucket);
+        }
+    }
+
+    private ConcurrentNavigableMap<Long, BookIdSet> range(long start, boolean startInclusive, long end) {
+        if (start > end || (start == end && !startInclusive)) {
+            return new ConcurrentSkipListMap<>();
+        }
+        return dates.subMap(start, startInclusive, end, false);
+    }
+
+    //Adds the books of one date after the given id, returns true once found holds limit books
+    private boolean collect(long date, int afterBookId, int limit, List<Book> found) {
+        BookIdSet ids = dates.get(date);
+        if (ids == null) {
+            return false;
+        }
+        int[] chunk = new int[SCAN_CHUNK];
+        int after = afterBookId;
+        while (true) {
+            int count = ids.copyAfter(after, chunk);
+            for (int i = 0; i < count; i++) {
+                Book book = findBook(chunk[i]);
+                //Skips ids whose book moved to another date after the chunk was copied
+                if (book != null && book.getPublishedDate() != null && book.getPublishedDate().toEpochMilli() == date) {
+                    found.add(book);
+                    if (found.size() == limit) {
+                        return true;
+                    }
+                }
+            }
+            if (count < chunk.length) {
+                return false;
+            }
+            after = chunk[count - 1];
+        }
+    }
+
+    private static LocalDate bucketStart(long epochDay, ChronoUnit bucket) {
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        return bucket == ChronoUnit.MONTHS ? day.withDayOfMonth(1) : day;
+    }
+
+    private void add(long date, int bookId) {
+        synchronized (lockFor(date)) {
+            if (dates.computeIfAbsent(date, key -> new BookIdSet()).add(bookId)) {
+                countDay(date, 1);
+            }
+        }
+    }
+
+    private void remove(long date, int bookId) {
+        synchronized (lockFor(date)) {
+            BookIdSet ids = dates.get(date);
+            if (ids != null && ids.remove(bookId)) {
+                countDay(date, -1);
+                if (ids.size() == 0) {
+                    dates.remove(date);
+                }
+            }
+        }
+    }
+
+    //Dates of one day may sit under different locks, the merge keeps their counts apart from that
+    private void countDay(long date, long delta) {
+        days.merge(Math.floorDiv(date, MILLIS_PER_DAY), delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    private Object lockFor(long date) {
+        return locks[(Long.hashCode(date) & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    //Buffered books are newer than the store, the index already follows them
+    private Book findBook(int bookId) {
+        Book book = writeBehind.findPending(bookId);
+        return book != null ? book : bookRepository.findById(bookId);
+    }
+}
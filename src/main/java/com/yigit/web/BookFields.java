@@ -0,0 +1,81 @@
+package com.yigit.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection of a book to the properties listed in the fields request parameter,
+ * e.g. fields=bookId,bookName
+ */
+final class BookFields {
+
+    private final List<String> names;
+
+    private BookFields(List<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * @param fields comma separated property names
+     * @return the projection
+     * @throws InvalidBookQueryException when a name is not a book property
+     */
+    static BookFields parse(String fields) {
+        List<String> names = new ArrayList<>();
+        for (String name : fields.split(",")) {
+            name = name.trim();
+            switch (name) {
+                case "bookId":
+                case "bookName":
+                case "publishedDate":
+                    if (!names.contains(name)) {
+                        names.add(name);
+                    }
+                    break;
+                case "":
+                    break;
+                default:
+                    throw new InvalidBookQueryException("Unknown book field " + name);
+            }
+        }
+        if (names.isEmpty()) {
+            throw new InvalidBookQueryException("No book fields requested");
+        }
+        return new BookFields(names);
+    }
+
+    Map<String, Object> project(Book book) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String name : names) {
+            switch (name) {
+                case "bookId":
+                    projected.put(name, book.getBookId());
+                    break;
+                case "bookName":
+                    projected.put(name, book.getBookName());
+                    break;
+                default:
+                    projected.put(name, book.getPublishedDate());
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * @param books      books to project
+     * @param projection fields to keep, null keeps the books whole
+     * @return the books, or maps of the requested fields in the order of the books
+     */
+    static List<?> project(List<Book> books, BookFields projection) {
+        if (projection == null) {
+            return books;
+        }
+        List<Object> projected = new ArrayList<>(books.size());
+        for (Book book : books) {
+            projected.add(projection.project(book));
+        }
+        return projected;
+    }
+}
@@ -0,0 +1,167 @@
+package com.yigit.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out book ids without a shared counter on the hot path.
+ * Every thread takes its ids from a block it reserved beforehand, blocks are cut from a single
+ * atomic high-water mark and the mark is written to the state file before any id of a block is
+ * handed out, so ids stay unique across restarts. Ids reserved but not handed out before a
+ * restart are skipped.
+ * Virtual threads live for one request, so a block of their own would serve a single id. They
+ * share a few blocks instead, picked by thread id and guarded by a lock each.
+ * Books may bring their own id up to MAX_EXPLICIT_ID, the ids above it are left to the allocator
+ * so one explicit id near the end of the range cannot use up the ids for every later book.
+ */
+@Component
+public class BookIdAllocator {
+
+    //Highest id a book may bring along, half of the positive ids
+    public static final int MAX_EXPLICIT_ID = 1 << 30;
+
+    private final int blockSize;
+    private final Path stateFile;
+    //Every id up to the high-water mark has been reserved
+    private final AtomicLong highWaterMark = new AtomicLong();
+    private final ThreadLocal<IdBlock> blocks = ThreadLocal.withInitial(IdBlock::new);
+    private final IdBlock[] sharedBlocks;
+    private final ReentrantLock[] sharedLocks;
+    //A lock rather than synchronized, so a virtual thread writing the mark does not pin its carrier
+    private final ReentrantLock persistLock = new ReentrantLock();
+    private long persistedMark;
+
+    public BookIdAllocator(@Value("${book.id.block-size:64}") int blockSize,
+                           @Value("${book.id.state-file:}") String stateFile) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("book.id.block-size must be positive");
+        }
+        this.blockSize = blockSize;
+        this.stateFile = stateFile.isEmpty() ? null : Paths.get(stateFile);
+        persistedMark = readMark();
+        highWaterMark.set(persistedMark);
+        sharedBlocks = new IdBlock[Runtime.getRuntime().availableProcessors() * 2];
+        sharedLocks = new ReentrantLock[sharedBlocks.length];
+        for (int i = 0; i < sharedBlocks.length; i++) {
+            sharedBlocks[i] = new IdBlock();
+            sharedLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return an id which has not been handed out before
+     */
+    public int nextId() {
+        Thread thread = Thread.currentThread();
+        if (!thread.isVirtual()) {
+            return take(blocks.get());
+        }
+        int shared = (int) (thread.threadId() % sharedBlocks.length);
+        sharedLocks[shared].lock();
+        try {
+            return take(sharedBlocks[shared]);
+        } finally {
+            sharedLocks[shared].unlock();
+        }
+    }
+
+    //The mark only moves when a block fits, the last block may be shorter than the others
+    private int take(IdBlock block) {
+        if (block.next > block.last) {
+            long mark;
+            long last;
+            do {
+                mark = highWaterMark.get();
+                if (mark >= Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Book ids are exhausted");
+                }
+                last = Math.min(mark + blockSize, Integer.MAX_VALUE);
+            } while (!highWaterMark.compareAndSet(mark, last));
+            persist(last);
+            block.next = (int) (mark + 1);
+            block.last = (int) last;
+        }
+        return block.next++;
+    }
+
+    /**
+     * Makes sure the given id, assigned outside the allocator, is never handed out
+     *
+     * @param id id taken by a book, at most MAX_EXPLICIT_ID
+     * @throws IllegalArgumentException when the id is above MAX_EXPLICIT_ID, the mark stays as it is
+     */
+    public void advancePast(int id) {
+        if (id > MAX_EXPLICIT_ID) {
+            throw new IllegalArgumentException("Book id " + id + " is above the highest explicit id " + MAX_EXPLICIT_ID);
+        }
+        long mark = highWaterMark.get();
+        while (mark < id) {
+            if (highWaterMark.compareAndSet(mark, id)) {
+                persist(id);
+                return;
+            }
+            mark = highWaterMark.get();
+        }
+    }
+
+    private void persist(long mark) {
+        persistLock.lock();
+        try {
+            if (mark <= persistedMark) {
+                return;
+            }
+            if (stateFile != null) {
+                writeMark(mark);
+            }
+            persistedMark = mark;
+        } finally {
+            persistLock.unlock();
+        }
+    }
+
+    private long readMark() {
+        if (stateFile == null || !Files.exists(stateFile)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(stateFile), StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read book id state from " + stateFile, e);
+        }
+    }
+
+    //Writes to a temporary file first so a crash never leaves a half written mark behind
+    private void writeMark(long mark) {
+        try {
+            Path parent = stateFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = parent.resolve(stateFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.US_ASCII)));
+                channel.force(true);
+            }
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write book id state to " + stateFile, e);
+        }
+    }
+
+    private static final class IdBlock {
+        int next = 1;
+        int last = 0;
+    }
+}
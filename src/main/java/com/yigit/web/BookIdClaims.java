@@ -0,0 +1,113 @@
+package com.yigit.web;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Lets one thread at a time write the book of an id. The BookService claims the ids of a write
+ * before it reads the books they replace and releases them once the listeners were told, so the
+ * previous book handed to the listeners is the one the write replaced and the writes of one
+ * book reach the listeners in the order they were stored.
+ * A generated id is only claimed when no thread holds it and the store has no book under it,
+ * otherwise the caller tries the next id, so a generated id never lands on a book added with
+ * the same explicit id. Claims of one thread nest, claims only live while their write runs.
+ * A thread which holds claims may only wait for ids above the ids it holds and must not hold a
+ * generated id while it waits, so writes of many books claim their explicit ids in ascending
+ * order before they generate ids.
+ */
+final class BookIdClaims {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    BookIdClaims() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * @param bookId id handed out by the allocator
+     * @param stored tells whether the store holds a book under an id
+     * @return true when the id is claimed for the calling thread, false when it is taken
+     */
+    boolean claimGenerated(int bookId, IntPredicate stored) {
+        Stripe stripe = stripeOf(bookId);
+        stripe.lock.lock();
+        try {
+            //The store is asked under the lock, so no explicit write of the id can start in between
+            if (stripe.claims.containsKey(bookId) || stored.test(bookId)) {
+                return false;
+            }
+            stripe.claims.put(bookId, new Claim(Thread.currentThread()));
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until no other thread holds the id and claims it for the calling thread
+     *
+     * @param bookId id of the book to write
+     */
+    void claim(int bookId) {
+        Stripe stripe = stripeOf(bookId);
+        stripe.lock.lock();
+        try {
+            Claim claim;
+            while ((claim = stripe.claims.get(bookId)) != null && claim.owner != Thread.currentThread()) {
+                stripe.released.awaitUninterruptibly();
+            }
+            if (claim == null) {
+                stripe.claims.put(bookId, new Claim(Thread.currentThread()));
+            } else {
+                claim.holds++;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Releases one claim of the calling thread on the id
+     *
+     * @param bookId id of the written book
+     */
+    void release(int bookId) {
+        Stripe stripe = stripeOf(bookId);
+        stripe.lock.lock();
+        try {
+            Claim claim = stripe.claims.get(bookId);
+            if (claim != null && claim.owner == Thread.currentThread() && --claim.holds == 0) {
+                stripe.claims.remove(bookId);
+                stripe.released.signalAll();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeOf(int bookId) {
+        return stripes[(bookId & 0x7fffffff) % STRIPES];
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition released = lock.newCondition();
+        final Map<Integer, Claim> claims = new HashMap<>();
+    }
+
+    private static final class Claim {
+        final Thread owner;
+        int holds = 1;
+
+        Claim(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
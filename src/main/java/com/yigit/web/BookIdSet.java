@@ -0,0 +1,63 @@
+package com.yigit.web;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of book ids in a plain int array, used as the postings of the secondary indexes.
+ * Ids mostly arrive in increasing order, so adding is an append in the common case.
+ */
+final class BookIdSet {
+
+    private int[] ids = new int[2];
+    private int size;
+
+    //Returns false when the id is in the set already
+    synchronized boolean add(int bookId) {
+        if (size == 0 || ids[size - 1] < bookId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = bookId;
+            return true;
+        }
+        int at = Arrays.binarySearch(ids, 0, size, bookId);
+        if (at >= 0) {
+            return false;
+        }
+        at = -at - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        ids[at] = bookId;
+        size++;
+        return true;
+    }
+
+    synchronized boolean remove(int bookId) {
+        int at = Arrays.binarySearch(ids, 0, size, bookId);
+        if (at < 0) {
+            return false;
+        }
+        System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    synchronized boolean contains(int bookId) {
+        return Arrays.binarySearch(ids, 0, size, bookId) >= 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    //Copies the ids greater than after into the target, as many as fit, and returns how many
+    synchronized int copyAfter(int after, int[] target) {
+        int from = Arrays.binarySearch(ids, 0, size, after);
+        from = from < 0 ? -from - 1 : from + 1;
+        int count = Math.min(target.length, size - from);
+        System.arraycopy(ids, from, target, 0, count);
+        return count;
+    }
+}
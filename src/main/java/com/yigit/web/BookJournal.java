@@ -0,0 +1,475 @@
+package com.yigit.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of the book writes, switched on by setting book.journal.dir.
+ * Every write appends one record per book to the current log segment and returns once the
+ * record is on disk and applied to the store. Writers waiting for the disk are served together:
+ * a single writer thread writes everything appended since its last write, forces the segment once
+ * for all of them and only then applies their books to the store in the order they were logged,
+ * so readers never see a write which is not durable and a failed write never reaches the store.
+ * When a segment grows past book.journal.snapshot-after-bytes the journal starts a new segment
+ * and writes a compacted snapshot of the store in the background, the snapshot replaces the
+ * segments before it. On start the latest snapshot and the segments after it are mapped and
+ * replayed into the store. Records are whole books, so replaying a record twice is harmless.
+ */
+@Component
+public class BookJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookJournal.class);
+
+    private static final String SEGMENT_PREFIX = "books-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    //Length and checksum of the record body
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAP_WINDOW = 1 << 30;
+    private static final int LOAD_BATCH = 10_000;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_NAME = -1;
+
+    private final Path directory;
+    private final long snapshotAfterBytes;
+    private final BookIdAllocator idAllocator;
+
+    //Guards the pending buffer and writes, the sequence numbers and the state of the writer thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private List<Append> pendingAppends = new ArrayList<>();
+    private long appendedSequence;
+    private long writtenSequence;
+    private IOException failure;
+    private boolean closing;
+
+    //Only used by the writer thread once the journal is open
+    private FileChannel segment;
+    private long segmentIndex;
+    private long segmentBytes;
+    private volatile boolean snapshotRunning;
+    private BookRepository store;
+    private Thread writer;
+    private ExecutorService snapshots;
+
+    public BookJournal(@Value("${book.journal.dir:}") String directory,
+                       @Value("${book.journal.snapshot-after-bytes:268435456}") long snapshotAfterBytes,
+                       BookIdAllocator idAllocator) {
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.snapshotAfterBytes = snapshotAfterBytes;
+        this.idAllocator = idAllocator;
+    }
+
+    /**
+     * Replays the journal into the store and starts logging writes
+     *
+     * @param store empty store to recover the books into
+     * @return store which logs every write before applying it, or the given store when the journal is off
+     */
+    public BookRepository open(BookRepository store) {
+        if (directory == null) {
+            return store;
+        }
+        try {
+            Files.createDirectories(directory);
+            long snapshot = -1;
+            int highestBookId = 0;
+            TreeSet<Long> snapshotIndexes = indexes(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (!snapshotIndexes.isEmpty()) {
+                snapshot = snapshotIndexes.last();
+                highestBookId = replay(snapshotPath(snapshot), store);
+            }
+            long last = snapshot;
+            for (long index : indexes(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (index > snapshot) {
+                    highestBookId = Math.max(highestBookId, replay(segmentPath(index), store));
+                }
+                last = Math.max(last, index);
+            }
+            removeCovered(snapshot);
+            //Keeps the allocator clear of recovered ids even when it has no state file of its own.
+            //Books above the explicit range come from earlier runs, generated ids skip them as
+            //they skip every stored id
+            idAllocator.advancePast(Math.min(highestBookId, BookIdAllocator.MAX_EXPLICIT_ID));
+
+            //A torn record may end the last segment, new records always go to a new segment
+            this.store = store;
+            segmentIndex = last + 1;
+            segment = FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the book journal in " + directory, e);
+        }
+        snapshots = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "book-journal-snapshot"));
+        writer = new Thread(this::writeLoop, "book-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return new JournaledBookRepository(store, this);
+    }
+
+    /**
+     * Logs the books and waits until the records are on disk and the writer thread applied them
+     * to the store, writes are applied in the order they were logged
+     *
+     * @param books books to log
+     * @param apply writes the books to the store
+     */
+    void append(Collection<Book> books, Runnable apply) {
+        Append append = new Append(apply);
+        lock.lock();
+        try {
+            if (closing) {
+                throw new IllegalStateException("The book journal is closed");
+            }
+            int mark = pending.position();
+            try {
+                for (Book book : books) {
+                    encode(book);
+                }
+            } catch (RuntimeException e) {
+                pending.position(mark);
+                throw e;
+            }
+            pendingAppends.add(append);
+            long sequence = ++appendedSequence;
+            appended.signal();
+            while (writtenSequence < sequence && failure == null) {
+                written.awaitUninterruptibly();
+            }
+            if (writtenSequence < sequence) {
+                throw new UncheckedIOException("Cannot write the book journal", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+        //The records are on disk and replayed on the next start even if the store refused them
+        if (append.error != null) {
+            throw append.error;
+        }
+    }
+
+    //Writes the pending records until the journal closes, one force per round, and applies
+    //them once they are on disk. Rotation follows the applies, so a snapshot sees every record
+    //of the segments it replaces.
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            List<Append> appends;
+            long sequence;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closing) {
+                    appended.awaitUninterruptibly();
+                }
+                if (pending.position() == 0 || failure != null) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                appends = pendingAppends;
+                pendingAppends = new ArrayList<>();
+                sequence = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                segmentBytes += batch.remaining();
+                while (batch.hasRemaining()) {
+                    segment.write(batch);
+                }
+                segment.force(false);
+                for (Append append : appends) {
+                    append.apply();
+                }
+                if (segmentBytes >= snapshotAfterBytes && !snapshotRunning) {
+                    startSnapshot();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                spare = batch.capacity() > BUFFER_SIZE ? ByteBuffer.allocate(BUFFER_SIZE) : batch.clear();
+                if (error != null) {
+                    failure = error;
+                    closing = true;
+                } else {
+                    writtenSequence = sequence;
+                }
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //Every record of the closed segment is in the store, so a snapshot taken from now on covers it
+    private void startSnapshot() throws IOException {
+        segment.close();
+        long covered = segmentIndex;
+        segmentIndex++;
+        segmentBytes = 0;
+        segment = FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        snapshotRunning = true;
+        snapshots.execute(() -> {
+            try {
+                writeSnapshot(covered);
+                removeCovered(covered);
+            } catch (IOException | RuntimeException e) {
+                //The segments stay, so nothing is lost and the next rotation tries again
+                LOG.warn("Cannot write the book snapshot {}", covered, e);
+            } finally {
+                snapshotRunning = false;
+            }
+        });
+    }
+
+    /**
+     * Writes every book of the store. Books written while the snapshot runs may or may not be in
+     * it, their records are in the newer segments which are replayed after the snapshot.
+     */
+    private void writeSnapshot(long covered) throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_PREFIX + covered + SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            int after = Integer.MIN_VALUE;
+            List<Book> page;
+            do {
+                page = store.findPage(after, LOAD_BATCH);
+                for (Book book : page) {
+                    byte[] name = nameBytes(book);
+                    if (buffer.remaining() < recordSize(name)) {
+                        drain(buffer, channel);
+                    }
+                    encode(buffer, book, name);
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getBookId();
+                }
+            } while (page.size() == LOAD_BATCH);
+            drain(buffer, channel);
+            channel.force(true);
+        }
+        Files.move(temp, snapshotPath(covered), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Removes the segments and older snapshots which the snapshot replaces
+    private void removeCovered(long snapshot) throws IOException {
+        for (long index : indexes(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (index <= snapshot) {
+                Files.deleteIfExists(segmentPath(index));
+            }
+        }
+        for (long index : indexes(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (index < snapshot) {
+                Files.deleteIfExists(snapshotPath(index));
+            }
+        }
+    }
+
+    /**
+     * Maps the file a window at a time and saves its books to the store in batches. Replay stops
+     * at the first incomplete or damaged record, which is what a crash in the middle of a write
+     * leaves behind.
+     *
+     * @return highest book id of the file
+     */
+    private static int replay(Path file, BookRepository store) throws IOException {
+        List<Book> batch = new ArrayList<>(LOAD_BATCH);
+        int highestBookId = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            CRC32C checksum = new CRC32C();
+            while (position < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                int consumed = 0;
+                while (window.remaining() >= HEADER_SIZE) {
+                    int length = window.getInt(consumed);
+                    int crc = window.getInt(consumed + 4);
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    if (window.limit() - consumed - HEADER_SIZE < length) {
+                        break;
+                    }
+                    ByteBuffer body = window.slice(consumed + HEADER_SIZE, length);
+                    checksum.reset();
+                    checksum.update(body.duplicate());
+                    if ((int) checksum.getValue() != crc) {
+                        break;
+                    }
+                    Book book = decode(body);
+                    highestBookId = Math.max(highestBookId, book.getBookId());
+                    batch.add(book);
+                    if (batch.size() == LOAD_BATCH) {
+                        store.saveAll(batch);
+                        batch.clear();
+                    }
+                    consumed += HEADER_SIZE + length;
+                    window.position(consumed);
+                }
+                if (consumed == 0) {
+                    //Not even one whole record fits, the rest of the file is a torn write
+                    break;
+                }
+                position += consumed;
+            }
+        }
+        store.saveAll(batch);
+        return highestBookId;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            closing = true;
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+        writer.join();
+        snapshots.shutdown();
+        snapshots.awaitTermination(1, TimeUnit.MINUTES);
+        segment.close();
+    }
+
+    //Write of one caller, applied by the writer thread and handed back with its outcome
+    private static final class Append {
+        final Runnable apply;
+        RuntimeException error;
+
+        Append(Runnable apply) {
+            this.apply = apply;
+        }
+
+        void apply() {
+            try {
+                apply.run();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+    }
+
+    private void encode(Book book) {
+        byte[] name = nameBytes(book);
+        int size = recordSize(name);
+        if (size - HEADER_SIZE > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Book name of " + name.length + " bytes is too long");
+        }
+        if (pending.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            bigger.put(pending.flip());
+            pending = bigger;
+        }
+        encode(pending, book, name);
+    }
+
+    //Record: body length, CRC32C of the body, then id, epoch millis and the UTF-8 name
+    private static void encode(ByteBuffer buffer, Book book, byte[] name) {
+        int start = buffer.position();
+        int bodyLength = recordSize(name) - HEADER_SIZE;
+        buffer.putInt(bodyLength);
+        buffer.putInt(0);
+        buffer.putInt(book.getBookId());
+        buffer.putLong(book.getPublishedDate() == null ? NO_DATE : book.getPublishedDate().toEpochMilli());
+        buffer.putInt(name == null ? NO_NAME : name.length);
+        if (name != null) {
+            buffer.put(name);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(start + HEADER_SIZE, bodyLength));
+        buffer.putInt(start + 4, (int) checksum.getValue());
+    }
+
+    private static Book decode(ByteBuffer body) {
+        int bookId = body.getInt();
+        long date = body.getLong();
+        int nameLength = body.getInt();
+        String name = null;
+        if (nameLength != NO_NAME) {
+            byte[] bytes = new byte[nameLength];
+            body.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Book(bookId, name, date == NO_DATE ? null : Instant.ofEpochMilli(date));
+    }
+
+    private static byte[] nameBytes(Book book) {
+        return book.getBookName() == null ? null : book.getBookName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int recordSize(byte[] name) {
+        return HEADER_SIZE + Integer.BYTES + Long.BYTES + Integer.BYTES + (name == null ? 0 : name.length);
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(SEGMENT_PREFIX + index + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotPath(long index) {
+        return directory.resolve(SNAPSHOT_PREFIX + index + SNAPSHOT_SUFFIX);
+    }
+
+    private TreeSet<Long> indexes(String prefix, String suffix) throws IOException {
+        TreeSet<Long> indexes = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                indexes.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        return indexes;
+    }
+}
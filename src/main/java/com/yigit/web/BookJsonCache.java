@@ -0,0 +1,64 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.Objects;
+
+/**
+ * Keeps the JSON encoding of every served book as bytes, so a book is only run through
+ * Jackson again after it has been written.
+ * An entry keeps the book it was encoded from and only serves a book with the same id, name and
+ * publication date, so bytes of a book which was replaced while it was encoded are never served
+ * for its successor. Entries are dropped when their book is written, the next read encodes the
+ * new book.
+ */
+public class BookJsonCache implements BookChangeListener {
+
+    private final ObjectWriter writer;
+    private final IntHashIndex<Entry> entries = new IntHashIndex<>();
+
+    public BookJsonCache(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(Book.class);
+    }
+
+    /**
+     * @param book book to encode
+     * @return JSON encoding of the book, callers must not modify it
+     * @throws JsonProcessingException when the book cannot be serialized
+     */
+    public byte[] toJson(Book book) throws JsonProcessingException {
+        Entry entry = entries.get(book.getBookId());
+        if (entry != null && entry.encodes(book)) {
+            return entry.json;
+        }
+
+        Entry fresh = new Entry(book, writer.writeValueAsBytes(book));
+        entries.put(book.getBookId(), fresh);
+        return fresh.json;
+    }
+
+    //A read which encoded the replaced book may still put it back, the next read replaces it
+    @Override
+    public void bookChanged(Book previous, Book current) {
+        entries.remove(current.getBookId());
+    }
+
+    private static final class Entry {
+        final Book book;
+        final byte[] json;
+
+        Entry(Book book, byte[] json) {
+            this.book = book;
+            this.json = json;
+        }
+
+        //Stores which build a book on every read hand out equal books rather than the same one
+        boolean encodes(Book other) {
+            return book == other || (book.getBookId() == other.getBookId()
+                    && Objects.equals(book.getBookName(), other.getBookName())
+                    && Objects.equals(book.getPublishedDate(), other.getPublishedDate()));
+        }
+    }
+}
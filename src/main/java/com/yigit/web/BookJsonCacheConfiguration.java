@@ -0,0 +1,36 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+//Serves book responses from pre-serialized bytes, switched on with book.json-cache.enabled=true
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "book.json-cache.enabled", havingValue = "true")
+public class BookJsonCacheConfiguration implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public BookJsonCacheConfiguration(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    //Also a BookChangeListener, the BookService tells it about every written book
+    @Bean
+    public BookJsonCache bookJsonCache() {
+        return new BookJsonCache(objectMapper);
+    }
+
+    //Goes in front of the Jackson converter, which still handles everything else
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new CachedBookJsonHttpMessageConverter(bookJsonCache(), objectMapper));
+    }
+}
@@ -0,0 +1,202 @@
+package com.yigit.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Meters of the book service and the book resources, published on /actuator/prometheus.
+ * Timers are fed from System.nanoTime() taken by the caller, so with book.metrics.enabled=false
+ * a timed operation costs one field read and no clock read, and nothing is registered.
+ */
+@Component
+public class BookMetrics {
+
+    //Drops every measurement, for BookServices built outside of Spring
+    public static final BookMetrics DISABLED = new BookMetrics(null, false);
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Timer searchTimer;
+    private final Timer addTimer;
+    private final Timer updateTimer;
+    private final Timer findAllTimer;
+    private final Timer findPageTimer;
+    private final Timer addBatchTimer;
+    private final Timer updateBatchTimer;
+    private final Counter lookupMisses;
+    private final DistributionSummary listSize;
+    private final Timer writeBehindFlushTimer;
+    private final DistributionSummary writeBehindBatchSize;
+
+    public BookMetrics(MeterRegistry registry, @Value("${book.metrics.enabled:true}") boolean enabled) {
+        this.registry = registry;
+        this.enabled = enabled;
+        if (!enabled) {
+            searchTimer = null;
+            addTimer = null;
+            updateTimer = null;
+            findAllTimer = null;
+            findPageTimer = null;
+            addBatchTimer = null;
+            updateBatchTimer = null;
+            lookupMisses = null;
+            listSize = null;
+            writeBehindFlushTimer = null;
+            writeBehindBatchSize = null;
+            return;
+        }
+        searchTimer = operationTimer("searchBook");
+        addTimer = operationTimer("addBook");
+        updateTimer = operationTimer("updateBook");
+        findAllTimer = operationTimer("findAllBooks");
+        findPageTimer = operationTimer("findBooks");
+        addBatchTimer = operationTimer("addBooks");
+        updateBatchTimer = operationTimer("updateBooks");
+        lookupMisses = Counter.builder("book.lookup.misses")
+                .description("Book lookups which found no book, answered with 404 by the resources")
+                .register(registry);
+        listSize = DistributionSummary.builder("book.list.response.size")
+                .description("Books in one GET /books response")
+                .baseUnit("books")
+                .publishPercentileHistogram()
+                .register(registry);
+        writeBehindFlushTimer = Timer.builder("book.write-behind.flush")
+                .description("Time the store took to save one write-behind batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        writeBehindBatchSize = DistributionSummary.builder("book.write-behind.batch.size")
+                .description("Books in one write-behind batch")
+                .baseUnit("books")
+                .register(registry);
+    }
+
+    /**
+     * @return start time to pass to one of the record methods, 0 when metrics are off
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordSearch(long start, boolean found) {
+        if (enabled) {
+            searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!found) {
+                lookupMisses.increment();
+            }
+        }
+    }
+
+    public void recordAdd(long start) {
+        if (enabled) {
+            addTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordUpdate(long start) {
+        if (enabled) {
+            updateTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordFindAll(long start) {
+        if (enabled) {
+            findAllTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordFindPage(long start) {
+        if (enabled) {
+            findPageTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordAddBatch(long start) {
+        if (enabled) {
+            addBatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordUpdateBatch(long start) {
+        if (enabled) {
+            updateBatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param books number of books in one GET /books response
+     */
+    public void recordListSize(int books) {
+        if (enabled) {
+            listSize.record(books);
+        }
+    }
+
+    /**
+     * @param catalogSize reads the number of books in the catalog whenever the gauge is scraped
+     */
+    void bindCatalogSize(IntSupplier catalogSize) {
+        if (enabled) {
+            Gauge.builder("book.catalog.size", catalogSize, IntSupplier::getAsInt)
+                    .description("Books in the catalog")
+                    .baseUnit("books")
+                    //Gauges only hold their object weakly, and nothing else holds the supplier
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+
+    void bindReadCoalescer(BookReadCoalescer coalescer) {
+        if (enabled) {
+            FunctionCounter.builder("book.read.coalescing.lookups", coalescer, BookReadCoalescer::getLookups)
+                    .description("Book reads which ran their own lookup and serialization")
+                    .register(registry);
+            FunctionCounter.builder("book.read.coalescing.coalesced", coalescer, BookReadCoalescer::getCoalescedReads)
+                    .description("Book reads answered by the flight of another read")
+                    .register(registry);
+            Gauge.builder("book.read.coalescing.ratio", coalescer, BookReadCoalescer::getCoalescingRatio)
+                    .description("Share of the book reads answered by the flight of another read")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * @param start start time of the flush
+     * @param books number of books the flush saved
+     */
+    void recordWriteBehindFlush(long start, int books) {
+        if (enabled) {
+            writeBehindFlushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            writeBehindBatchSize.record(books);
+        }
+    }
+
+    /**
+     * @param depth reads the number of books waiting for the store whenever the gauge is scraped
+     */
+    void bindWriteBehindDepth(IntSupplier depth) {
+        if (enabled) {
+            Gauge.builder("book.write-behind.queue.depth", depth, IntSupplier::getAsInt)
+                    .description("Books written to the write-behind buffer which the store does not hold yet")
+                    .baseUnit("books")
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+
+    private Timer operationTimer(String operation) {
+        return Timer.builder("book.service.operations")
+                .description("Time spent in one BookService operation")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,144 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight reads of one book. Concurrent reads of the same book share one lookup in the
+ * BookService and one serialization, and reads arriving within the window after it finished
+ * get the same bytes. A flight is tied to the version of the book stamp read before it started,
+ * so once the book is written the next read starts a new flight.
+ * Switched on with book.read-coalescing.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "book.read-coalescing.enabled", havingValue = "true")
+public class BookReadCoalescer {
+
+    private final BookService bookService;
+    private final ObjectWriter writer;
+    private final ConcurrentHashMap<Integer, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    //How long the bytes of a finished flight are handed to later reads of the same version
+    private final long windowNanos;
+
+    public BookReadCoalescer(BookService bookService, ObjectMapper objectMapper, BookMetrics bookMetrics,
+                             @Value("${book.read-coalescing.window-ms:20}") long windowMillis) {
+        this.bookService = bookService;
+        this.writer = objectMapper.writerFor(Book.class);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        bookMetrics.bindReadCoalescer(this);
+    }
+
+    /**
+     * @param bookId id of the book
+     * @param stamp  stamp of the book read before this call
+     * @return JSON encoding of the book or null when there is no book with the id, callers must
+     * not modify it
+     * @throws JsonProcessingException when the book cannot be serialized
+     */
+    public byte[] readJson(int bookId, BookStamp stamp) throws JsonProcessingException {
+        long now = System.nanoTime();
+        sweep(now);
+        Flight flight = flights.get(bookId);
+        if (flight == null || !flight.serves(stamp.getVersion(), now, windowNanos)) {
+            Flight own = new Flight(stamp.getVersion());
+            flight = flights.compute(bookId, (id, current) ->
+                    current != null && current.serves(stamp.getVersion(), now, windowNanos) ? current : own);
+            if (flight == own) {
+                lookups.increment();
+                return fly(bookId, own);
+            }
+        }
+        coalesced.increment();
+        try {
+            return flight.json.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof JsonProcessingException) {
+                throw (JsonProcessingException) e.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @return reads which ran their own lookup and serialization
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return reads which were answered by the flight of another read
+     */
+    public long getCoalescedReads() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return share of the reads which were answered by the flight of another read
+     */
+    public double getCoalescingRatio() {
+        long shared = coalesced.sum();
+        long total = shared + lookups.sum();
+        return total == 0 ? 0 : shared / (double) total;
+    }
+
+    private byte[] fly(int bookId, Flight flight) throws JsonProcessingException {
+        try {
+            Book book = bookService.searchBook(bookId);
+            byte[] json = book == null ? null : writer.writeValueAsBytes(book);
+            flight.finishedAt = System.nanoTime();
+            flight.json.complete(json);
+            return json;
+        } catch (JsonProcessingException | RuntimeException e) {
+            //Failures are handed to the reads already waiting but not kept for later ones
+            flights.remove(bookId, flight);
+            flight.json.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    //At most once per window one read drops the flights whose window has passed, so books read
+    //once do not keep their bytes
+    private void sweep(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + Math.max(windowNanos, TimeUnit.MILLISECONDS.toNanos(1)))) {
+            return;
+        }
+        flights.values().removeIf(flight -> flight.expired(now, windowNanos));
+    }
+
+    private static final class Flight {
+        final long version;
+        final CompletableFuture<byte[]> json = new CompletableFuture<>();
+        //System.nanoTime() once the bytes are ready, read only after json is done
+        volatile long finishedAt;
+
+        Flight(long version) {
+            this.version = version;
+        }
+
+        boolean serves(long version, long now, long windowNanos) {
+            return this.version == version && !expired(now, windowNanos);
+        }
+
+        boolean expired(long now, long windowNanos) {
+            return json.isDone() && now - finishedAt > windowNanos;
+        }
+    }
+}
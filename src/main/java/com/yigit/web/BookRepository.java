@@ -0,0 +1,56 @@
+package com.yigit.web;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage behind the BookService. Implementations must be safe for concurrent use
+ * since every request thread goes through the same instance.
+ */
+public interface BookRepository {
+
+    /**
+     * @return every stored book ordered by book id
+     */
+    List<Book> findAll();
+
+    /**
+     * Keyset page over the books ordered by book id
+     *
+     * @param afterBookId only books with a greater id are returned
+     * @param limit       maximum number of books
+     * @return at most limit books ordered by book id
+     */
+    List<Book> findPage(int afterBookId, int limit);
+
+    /**
+     * @param bookId id of the book
+     * @return the book or null when no book is stored under the id
+     */
+    Book findById(int bookId);
+
+    /**
+     * Stores the book under its id, replacing any book already stored under the same id
+     *
+     * @param book book with an assigned id
+     * @return the stored book
+     */
+    Book save(Book book);
+
+    /**
+     * Stores all books as one batch. Stores which can write a batch cheaper than one book
+     * at a time override this.
+     *
+     * @param books books with assigned ids
+     */
+    default void saveAll(Collection<Book> books) {
+        for (Book book : books) {
+            save(book);
+        }
+    }
+
+    /**
+     * @return number of stored books
+     */
+    int count();
+}
@@ -0,0 +1,138 @@
+package com.yigit.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Request checks and response parts which BookResource and ReactiveBookResource share, so both
+ * stacks validate parameters, bound sizes and link pages the same way.
+ */
+@Component
+class BookRequests {
+
+    private final BookChangeFeed bookChangeFeed;
+    private final int defaultPageSize;
+    //Hard upper bound of the limit parameter, larger limits are cut down to it
+    private final int maxPageSize;
+    //Most books in one JSON batch request, NDJSON streams are applied in batches of this size
+    private final int maxBatchSize;
+    private final int defaultSearchSize;
+    //Idle change streams send a comment this often, so dead connections are noticed
+    private final long changesHeartbeatMillis;
+
+    BookRequests(BookChangeFeed bookChangeFeed,
+                 @Value("${book.page.default-size:100}") int defaultPageSize,
+                 @Value("${book.page.max-size:1000}") int maxPageSize,
+                 @Value("${book.batch.max-size:10000}") int maxBatchSize,
+                 @Value("${book.search.default-size:20}") int defaultSearchSize,
+                 @Value("${book.changes.heartbeat-ms:15000}") long changesHeartbeatMillis) {
+        this.bookChangeFeed = bookChangeFeed;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.defaultSearchSize = defaultSearchSize;
+        this.changesHeartbeatMillis = changesHeartbeatMillis;
+    }
+
+    int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    long getChangesHeartbeatMillis() {
+        return changesHeartbeatMillis;
+    }
+
+    /**
+     * @param limit limit request parameter, or null
+     * @return books per page, at most book.page.max-size
+     */
+    int pageSize(Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize < 1) {
+            throw new InvalidBookQueryException("limit must be positive but was " + pageSize);
+        }
+        return Math.min(pageSize, maxPageSize);
+    }
+
+    /**
+     * @param q     search request parameter
+     * @param limit limit request parameter, or null
+     * @return books to search for, at most book.page.max-size
+     */
+    int searchSize(String q, Integer limit) {
+        if (BookSearchIndex.tokenize(q).isEmpty()) {
+            throw new InvalidBookQueryException("q must hold at least one letter or digit");
+        }
+        int size = limit == null ? defaultSearchSize : limit;
+        if (size < 1) {
+            throw new InvalidBookQueryException("limit must be positive but was " + size);
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    void checkBatchSize(List<Book> books) {
+        if (books.size() > maxBatchSize) {
+            throw new InvalidBookQueryException("Batch holds " + books.size() + " books, at most " + maxBatchSize + " are accepted");
+        }
+    }
+
+    /**
+     * @param request  builder of the current request URI
+     * @param page     books of the page
+     * @param pageSize requested books per page
+     * @param byDate   whether the page is ordered by publication date and book id
+     * @return Link header to the next page, or null when the page is the last one
+     */
+    static String nextPageLink(UriComponentsBuilder request, List<Book> page, int pageSize, boolean byDate) {
+        if (page.size() < pageSize) {
+            return null;
+        }
+        Book last = page.get(page.size() - 1);
+        if (byDate) {
+            request.replaceQueryParam("afterDate", last.getPublishedDate());
+        }
+        String next = request.replaceQueryParam("after", last.getBookId())
+                .replaceQueryParam("limit", pageSize)
+                .toUriString();
+        return "<" + next + ">; rel=\"next\"";
+    }
+
+    static BookFields projection(String fields) {
+        return fields == null ? null : BookFields.parse(fields);
+    }
+
+    static void checkPathId(Book book, int id) {
+        if (book.getBookId() != id) {
+            throw notFound(id);
+        }
+    }
+
+    static BookNotFoundException notFound(int bookId) {
+        return new BookNotFoundException("Book not exsits for ID" + bookId);
+    }
+
+    //A client which fell behind the change log gets 410 with resyncRequired
+    static ResponseEntity<BookChangePage> changesResponse(BookChangePage page) {
+        return ResponseEntity.status(page.isResyncRequired() ? HttpStatus.GONE : HttpStatus.OK).body(page);
+    }
+
+    //The Last-Event-ID of a reconnecting client wins over the request parameters
+    static String streamEpoch(String epoch, String lastEventId) {
+        return lastEventId != null ? BookChangeFeed.epochOf(lastEventId) : epoch;
+    }
+
+    //Without since or Last-Event-ID a stream starts at the latest change
+    long streamStart(Long since, String lastEventId) {
+        return lastEventId != null ? BookChangeFeed.sequenceOf(lastEventId)
+                : since != null ? since : bookChangeFeed.getLastSequence();
+    }
+}
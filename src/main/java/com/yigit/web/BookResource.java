@@ -1,37 +1,234 @@
 package com.yigit.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 
 //Define all the REST methods in this class
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BookResource {
 
+    public static final String NDJSON = "application/x-ndjson";
+
     //get the BookService
     //Auto connect the Bookservice instance to bookservice class
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookDateIndex bookDateIndex;
+
+    @Autowired
+    private BookMetrics bookMetrics;
+
+    @Autowired
+    private BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    private BookRequests bookRequests;
+
+    //Only present with book.catalog-cache.enabled=true
+    @Autowired(required = false)
+    private BookCatalogCache bookCatalogCache;
+
+    //Only present with book.read-coalescing.enabled=true
+    @Autowired(required = false)
+    private BookReadCoalescer bookReadCoalescer;
+
+    //Without after and limit the whole catalog is returned, otherwise one page ordered by book id
+    //with a Link header pointing to the next page when there may be more books.
+    //publishedFrom and publishedTo, both inclusive UTC days, page through the books published in
+    //between ordered by date and book id instead, the next page starts after afterDate and after.
+    //A matching If-None-Match gets a 304 before the store or the serializer is touched.
+    //With the catalog cache on, the whole catalog is served from bytes kept until the next write,
+    //compressed ahead of time for clients which accept gzip, unless it is above the cache size limit.
     @GetMapping("/books")
-    public List<Book> getAllBooks(){
-        return bookService.findAllBooks();
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) Integer after,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestParam(required = false) String fields,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate publishedFrom,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate publishedTo,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant afterDate,
+                                               WebRequest webRequest){
+        if (webRequest.checkNotModified(bookService.catalogETag())) {
+            return null;
+        }
+
+        BookFields projection = BookRequests.projection(fields);
+
+        if (publishedFrom != null || publishedTo != null) {
+            int pageSize = bookRequests.pageSize(limit);
+            List<Book> page = bookDateIndex.findPublished(BookDateIndex.startOfDay(publishedFrom), BookDateIndex.endOfDay(publishedTo),
+                    afterDate, after == null ? 0 : after, pageSize);
+            return pageResponse(page, pageSize, true, projection);
+        }
+
+        BookCatalogCache.Entry catalog = after == null && limit == null && projection == null && bookCatalogCache != null
+                ? bookCatalogCache.get() : null;
+        if (catalog != null) {
+            bookMetrics.recordListSize(catalog.getBookCount());
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            //The server does not compress a response which already has a Content-Encoding. Both
+            //encodings carry the weak catalog ETag, Vary keeps caches from mixing them up.
+            if (catalog.getGzip() != null && BookCatalogCache.acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.getGzip());
+            }
+            return response.body(catalog.getJson());
+        }
+
+        if (after == null && limit == null) {
+            List<Book> books = bookService.findAllBooks();
+            bookMetrics.recordListSize(books.size());
+            return ResponseEntity.ok(BookFields.project(books, projection));
+        }
+
+        int pageSize = bookRequests.pageSize(limit);
+        List<Book> page = bookService.findBooks(after == null ? 0 : after, pageSize);
+        return pageResponse(page, pageSize, false, projection);
+    }
+
+    //Streams the whole catalog as one JSON document per line. Books are written while the
+    //catalog is walked, and a slow client blocks the walk instead of piling up books in memory
+    @GetMapping(value = "/books/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportBooks(){
+        ObjectWriter writer = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            try {
+                bookService.forEachBook(book -> {
+                    try {
+                        writer.writeValue(generator, book);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    //Changes of the catalog after since, oldest first. A client which fell behind the change log
+    //gets 410 with resyncRequired, it reloads /books and continues from the sequence of the answer
+    @GetMapping("/books/changes")
+    public ResponseEntity<BookChangePage> getChanges(@RequestParam long since,
+                                                     @RequestParam(required = false) String epoch,
+                                                     @RequestParam(required = false) Integer limit){
+        return BookRequests.changesResponse(bookChangeFeed.read(epoch, since, bookRequests.pageSize(limit)));
+    }
+
+    //The same changes as Server-Sent Events, from since or the Last-Event-ID of a reconnecting
+    //client, and from now on without either. A client which fell behind gets one resync event.
+    //Every stream is written by a virtual thread of its own which waits for the next change.
+    @GetMapping(value = "/books/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestParam(required = false) String epoch,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){
+        String clientEpoch = BookRequests.streamEpoch(epoch, lastEventId);
+        long start = bookRequests.streamStart(since, lastEventId);
+        SseEmitter emitter = new SseEmitter();
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+        Thread.ofVirtual().name("book-changes-stream").start(() -> sendChanges(emitter, open, clientEpoch, start));
+        return emitter;
+    }
+
+    //Number of books published per day or month between from and to, both inclusive UTC days
+    @GetMapping("/books/published-counts")
+    public ResponseEntity<List<BookDateBucket>> countPublishedBooks(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestParam(defaultValue = "day") String bucket,
+                                                                    WebRequest webRequest){
+        ChronoUnit unit = BookDateIndex.bucketUnit(bucket);
+        Instant start = BookDateIndex.startOfDay(from);
+        Instant end = BookDateIndex.endOfDay(to);
+        if (webRequest.checkNotModified(bookService.catalogETag())) {
+            return null;
+        }
+        return ResponseEntity.ok(bookDateIndex.countPublished(start, end, unit));
     }
 
+    //Books whose name holds every word of q, the last word may also be the start of a word
+    @GetMapping("/books/search")
+    public List<?> searchBooks(@RequestParam String q,
+                               @RequestParam(required = false) Integer limit,
+                               @RequestParam(required = false) String fields){
+        int size = bookRequests.searchSize(q, limit);
+        BookFields projection = BookRequests.projection(fields);
+        return BookFields.project(bookSearchIndex.search(q, size), projection);
+    }
+
+    //With read coalescing on, concurrent reads of the same book share one lookup and one serialization
     @GetMapping("/books/{bookId}")
-    public Book retriveBook(@PathVariable int bookId){
+    public ResponseEntity<?> retriveBook(@PathVariable int bookId, WebRequest webRequest) throws JsonProcessingException {
+
+        //The stamp is read before the book so the ETag is never newer than the body
+        BookStamp stamp = bookService.bookStamp(bookId);
+        if (stamp == null) {
+            throw BookRequests.notFound(bookId);
+        }
+        if (webRequest.checkNotModified(stamp.getETag(), stamp.getLastModified())) {
+            return null;
+        }
+
+        if (bookReadCoalescer != null) {
+            byte[] json = bookReadCoalescer.readJson(bookId, stamp);
+            if (json == null) {
+                throw BookRequests.notFound(bookId);
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
 
         Book book =bookService.searchBook(bookId);
 
         if(book == null){
-            throw new BookNotFoundException("Book not exsits for ID" +bookId);
+            throw BookRequests.notFound(bookId);
         }
 
-        return book;
+        return ResponseEntity.ok(book);
     }
 
     @PostMapping("/books") //Add data
@@ -49,12 +246,96 @@ public class BookResource {
 
     @PutMapping("/books/{id}")
     public Book updateBook(@RequestBody Book book, @PathVariable int id) {
-        bookService.searchBook(id);
-        if (book.getBookId() != id) {
-            throw new BookNotFoundException("Book not exsits for ID" +id);
-        }
+        BookRequests.checkPathId(book, id);
 
         return bookService.updateBook(book);
     }
 
+    //Adds a JSON array of books as one batch, the response holds the outcome of every book
+    @PostMapping(value = "/books/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BookBatchItem> createBooks(@RequestBody List<Book> books){
+        bookRequests.checkBatchSize(books);
+        return bookService.addBooks(books, 0);
+    }
+
+    @PostMapping(value = "/books/batch", consumes = NDJSON)
+    public List<BookBatchItem> createBooks(InputStream body) throws IOException {
+        return applyStream(body, bookService::addBooks);
+    }
+
+    //Updates a JSON array of books as one batch, the response holds the outcome of every book
+    @PutMapping(value = "/books/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BookBatchItem> updateBooks(@RequestBody List<Book> books){
+        bookRequests.checkBatchSize(books);
+        return bookService.updateBooks(books, 0);
+    }
+
+    @PutMapping(value = "/books/batch", consumes = NDJSON)
+    public List<BookBatchItem> updateBooks(InputStream body) throws IOException {
+        return applyStream(body, bookService::updateBooks);
+    }
+
+    private void sendChanges(SseEmitter emitter, AtomicBoolean open, String epoch, long since) {
+        long cursor = since;
+        try {
+            while (open.get()) {
+                BookChangePage page = bookChangeFeed.read(epoch, cursor, bookRequests.getMaxPageSize());
+                if (page.isResyncRequired()) {
+                    emitter.send(SseEmitter.event().name("resync").data(page, MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                    return;
+                }
+                for (BookChange change : page.getChanges()) {
+                    emitter.send(SseEmitter.event()
+                            .id(BookChangeFeed.eventId(page.getEpoch(), change.getSequence()))
+                            .name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+                cursor = page.getSequence();
+                if (page.getChanges().isEmpty() && !bookChangeFeed.awaitChange(cursor, bookRequests.getChangesHeartbeatMillis())) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            //The client went away or the stream timed out, it reconnects with Last-Event-ID
+            emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+
+    private ResponseEntity<List<?>> pageResponse(List<Book> page, int pageSize, boolean byDate, BookFields projection) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String next = BookRequests.nextPageLink(ServletUriComponentsBuilder.fromCurrentRequest(), page, pageSize, byDate);
+        if (next != null) {
+            response.header(HttpHeaders.LINK, next);
+        }
+        bookMetrics.recordListSize(page.size());
+        return response.body(BookFields.project(page, projection));
+    }
+
+    //Reads the stream one book per line and applies every book.batch.max-size books as a batch,
+    //batches read before a malformed line stay applied
+    private List<BookBatchItem> applyStream(InputStream body,
+                                            BiFunction<List<Book>, Integer, List<BookBatchItem>> batchOperation) throws IOException {
+        List<BookBatchItem> items = new ArrayList<>();
+        List<Book> batch = new ArrayList<>();
+        try (MappingIterator<Book> books = objectMapper.readerFor(Book.class).readValues(body)) {
+            while (books.hasNextValue()) {
+                batch.add(books.nextValue());
+                if (batch.size() == bookRequests.getMaxBatchSize()) {
+                    items.addAll(batchOperation.apply(batch, items.size()));
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidBookQueryException("Book " + (items.size() + batch.size()) + " of the stream is malformed: " + e.getOriginalMessage());
+        }
+        if (!batch.isEmpty()) {
+            items.addAll(batchOperation.apply(batch, items.size()));
+        }
+        return items;
+    }
+
 }
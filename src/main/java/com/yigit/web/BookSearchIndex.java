@@ -0,0 +1,273 @@
+package com.yigit.web;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Word index over the book names, kept up to date as books are written.
+ * Names are split into words of letters and digits and lower cased. Every word maps to the ids
+ * of the books whose name holds it, and since the words are kept sorted all words starting with
+ * a prefix are one range of the map, which is what a prefix trie would give at a fraction of its
+ * memory for catalogs with millions of distinct words.
+ * The BookService hands the writes of one book over one after the other, each with the book it
+ * replaced, so the words of a renamed book are removed before the next rename of it arrives.
+ * A book found through the index is still checked against its current name before it is
+ * returned, since a search may run between the store taking a rename and the index following it.
+ */
+@Component
+public class BookSearchIndex implements BookChangeListener {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int SCAN_CHUNK = 256;
+    //Most words a prefix may stand for and still be checked through their postings
+    private static final int MAX_PREFIX_WORDS = 32;
+
+    private final BookRepository bookRepository;
+    private final BookWriteBehind writeBehind;
+    private final ConcurrentSkipListMap<String, BookIdSet> words = new ConcurrentSkipListMap<>();
+    //Adding the first and removing the last id of a word must not interleave
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public BookSearchIndex(BookRepository bookRepository, BookWriteBehind writeBehind) {
+        this.bookRepository = bookRepository;
+        this.writeBehind = writeBehind;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void bookChanged(Book previous, Book current) {
+        Set<String> currentWords = new HashSet<>(tokenize(current.getBookName()));
+        if (previous != null) {
+            for (String word : tokenize(previous.getBookName())) {
+                if (!currentWords.contains(word)) {
+                    remove(word, current.getBookId());
+                }
+            }
+        }
+        for (String word : currentWords) {
+            add(word, current.getBookId());
+        }
+    }
+
+    /**
+     * Finds the books whose name holds every word of the query. The last word also matches as
+     * the start of a longer word, so a query can be searched while it is typed.
+     * A single word query lists the books holding the word itself first, then the books holding
+     * longer words starting with it in alphabetical order of those words, each group by book id.
+     * Longer queries list the books by book id.
+     *
+     * @param query words to search for
+     * @param limit maximum number of books
+     * @return at most limit matching books
+     */
+    public List<Book> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit < 1) {
+            return Collections.emptyList();
+        }
+        String prefix = queryWords.get(queryWords.size() - 1);
+        List<String> wholeWords = queryWords.subList(0, queryWords.size() - 1);
+        List<Book> found = new ArrayList<>(Math.min(limit, SCAN_CHUNK));
+
+        if (wholeWords.isEmpty()) {
+            Set<Integer> seen = new HashSet<>();
+            ConcurrentNavigableMap<String, BookIdSet> completions =
+                    words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            for (BookIdSet postings : completions.values()) {
+                if (collect(postings, Collections.emptyList(), null, wholeWords, prefix, limit, found, seen)) {
+                    break;
+                }
+            }
+            return found;
+        }
+
+        //The rarest word drives the scan, the others are checked by lookups in their postings
+        BookIdSet driver = null;
+        List<BookIdSet> others = new ArrayList<>(wholeWords.size());
+        for (String word : new LinkedHashSet<>(wholeWords)) {
+            BookIdSet postings = words.get(word);
+            if (postings == null) {
+                return found;
+            }
+            if (driver == null || postings.size() < driver.size()) {
+                if (driver != null) {
+                    others.add(driver);
+                }
+                driver = postings;
+            } else {
+                others.add(postings);
+            }
+        }
+        collect(driver, others, completions(prefix), wholeWords, prefix, limit, found, null);
+        return found;
+    }
+
+    /**
+     * Splits the text into lower cased words of letters and digits
+     *
+     * @param text text to split, may be null
+     * @return words in the order of the text
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>(4);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    //BookIdSet of every word starting with the prefix, or null when the prefix stands for too many words
+    private List<BookIdSet> completions(String prefix) {
+        List<BookIdSet> completions = new ArrayList<>();
+        for (BookIdSet postings : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (completions.size() == MAX_PREFIX_WORDS) {
+                return null;
+            }
+            completions.add(postings);
+        }
+        return completions;
+    }
+
+    /**
+     * Adds the matching books of the postings to found, returns true once found holds limit books.
+     * Books missing from one of the others or, when given, from all of anyOf are skipped before
+     * the store is asked for them.
+     */
+    private boolean collect(BookIdSet postings, List<BookIdSet> others, List<BookIdSet> anyOf, List<String> wholeWords,
+                            String prefix, int limit, List<Book> found, Set<Integer> seen) {
+        int[] chunk = new int[SCAN_CHUNK];
+        int after = Integer.MIN_VALUE;
+        while (true) {
+            int count = postings.copyAfter(after, chunk);
+            for (int i = 0; i < count; i++) {
+                int bookId = chunk[i];
+                if (!containedInAll(others, bookId) || (anyOf != null && !containedInAny(anyOf, bookId))
+                        || (seen != null && !seen.add(bookId))) {
+                    continue;
+                }
+                Book book = findBook(bookId);
+                if (book != null && matches(book, wholeWords, prefix)) {
+                    found.add(book);
+                    if (found.size() == limit) {
+                        return true;
+                    }
+                }
+            }
+            if (count < chunk.length) {
+                return false;
+            }
+            after = chunk[count - 1];
+        }
+    }
+
+    private static boolean containedInAll(List<BookIdSet> others, int bookId) {
+        for (BookIdSet postings : others) {
+            if (!postings.contains(bookId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containedInAny(List<BookIdSet> postingsList, int bookId) {
+        for (BookIdSet postings : postingsList) {
+            if (postings.contains(bookId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Book book, List<String> wholeWords, String prefix) {
+        String name = book.getBookName();
+        if (name == null || !holdsWord(name, prefix, true)) {
+            return false;
+        }
+        for (String word : wholeWords) {
+            if (!holdsWord(name, word, false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Walks the words of the name the way tokenize splits them, without building them
+    private static boolean holdsWord(String name, String word, boolean asPrefix) {
+        int i = 0;
+        while (i < name.length()) {
+            int codePoint = name.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int matched = 0;
+            int end = i;
+            while (end < name.length() && matched < word.length()) {
+                int nameCodePoint = name.codePointAt(end);
+                int wordCodePoint = word.codePointAt(matched);
+                if (!Character.isLetterOrDigit(nameCodePoint) || Character.toLowerCase(nameCodePoint) != wordCodePoint) {
+                    break;
+                }
+                end += Character.charCount(nameCodePoint);
+                matched += Character.charCount(wordCodePoint);
+            }
+            if (matched == word.length()
+                    && (asPrefix || end == name.length() || !Character.isLetterOrDigit(name.codePointAt(end)))) {
+                return true;
+            }
+            while (i < name.length() && Character.isLetterOrDigit(codePoint = name.codePointAt(i))) {
+                i += Character.charCount(codePoint);
+            }
+        }
+        return false;
+    }
+
+    private void add(String word, int bookId) {
+        synchronized (lockFor(word)) {
+            words.computeIfAbsent(word, key -> new BookIdSet()).add(bookId);
+        }
+    }
+
+    private void remove(String word, int bookId) {
+        synchronized (lockFor(word)) {
+            BookIdSet postings = words.get(word);
+            if (postings != null && postings.remove(bookId) && postings.size() == 0) {
+                words.remove(word);
+            }
+        }
+    }
+
+    private Object lockFor(String word) {
+        return locks[(word.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    //Buffered books are newer than the store, the index already follows them
+    private Book findBook(int bookId) {
+        Book book = writeBehind.findPending(bookId);
+        return book != null ? book : bookRepository.findById(bookId);
+    }
+}
@@ -2,48 +2,386 @@ package com.yigit.web;
 
 import org.springframework.stereotype.Component;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Component
 public class BookService {
-    //Create a list to store books
-    private static List<Book> books = new ArrayList<>();
-    private static int bookCount =3;
+    private static final int WALK_PAGE_SIZE = 1000;
+
+    //Store which keeps the books
+    private final BookRepository bookRepository;
+    private final BookIdAllocator idAllocator;
+    //Ids being written, so writes of one book reach the listeners one after the other and a
+    //generated id never lands on a book added with the same explicit id
+    private final BookIdClaims idClaims = new BookIdClaims();
+    private final BookWriteBehind writeBehind;
+    //Indexes and other views of the catalog which follow every write
+    private final List<BookChangeListener> listeners;
+    private final BookMetrics metrics;
+
+    //Versions of the books and of the whole catalog, bumped after every write so a stamp read
+    //before a book is never newer than the book. The epoch keeps ETags of an earlier run from matching.
+    //The ETags are weak, the server compresses responses and does not compress one with a strong ETag.
+    //A book takes the catalog version of its write as its version, so no two writes of a book share one.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final IntHashIndex<BookStamp> stamps = new IntHashIndex<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    //Stamp of the books without one of their own. Once more than book.stamps.max books carry a
+    //stamp, they are dropped and share a floor stamp at the catalog version of the moment, which
+    //is newer than each of their writes and older than any later one.
+    private volatile BookStamp floorStamp = new BookStamp(epoch, 0, 0, System.currentTimeMillis());
+
+    //Set before injection as well, the constructor already writes the first books
+    @Value("${book.stamps.max:100000}")
+    private int maxStamps = 100_000;
+
+    //Share one String between books of the same name, pays off for catalogs with many editions of a title
+    @Value("${book.names.intern:false}")
+    private boolean internNames;
 
-    //Add books to the list
-    static {
-        books.add(new Book(1,"Harry potter",new Date()));
-        books.add(new Book(2,"Lord of the Rings",new Date()));
-        books.add(new Book(3,"Song of Ice and fire",new Date()));
+    public BookService(BookRepository bookRepository, BookIdAllocator idAllocator, BookJournal bookJournal,
+                       BookWriteBehind writeBehind, List<BookChangeListener> listeners, BookMetrics metrics) {
+        //Recovers the books of earlier runs, writes go through the journal from here on,
+        //behind the write-behind buffer when it is on
+        this.bookRepository = writeBehind.open(bookJournal.open(bookRepository));
+        this.idAllocator = idAllocator;
+        this.writeBehind = writeBehind;
+        this.listeners = listeners;
+        this.metrics = metrics;
+        metrics.bindCatalogSize(this.bookRepository::count);
+        if (this.bookRepository.count() > 0) {
+            forEachBook(book -> changed(null, book));
+            return;
+        }
+
+        //Add books to the store
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        addBook(new Book(1,"Harry potter",now));
+        addBook(new Book(2,"Lord of the Rings",now));
+        addBook(new Book(3,"Song of Ice and fire",now));
     }
 
     public List<Book> findAllBooks(){
+        long start = metrics.start();
+        List<Book> books = bookRepository.findAll();
+        metrics.recordFindAll(start);
         return books;
     }
 
-    public Book addBook(Book book){
-        if(book.getBookId() == null){
-            book.setBookId(bookCount++);
+    /**
+     * @param afterBookId only books with a greater id are returned
+     * @param limit       maximum number of books
+     * @return page of books ordered by book id
+     */
+    public List<Book> findBooks(int afterBookId, int limit){
+        long start = metrics.start();
+        List<Book> books = bookRepository.findPage(afterBookId, limit);
+        metrics.recordFindPage(start);
+        return books;
+    }
+
+    /**
+     * Passes every book to the action in book id order. The catalog is walked page by page,
+     * so only one page is held in memory at a time no matter how big the catalog is.
+     *
+     * @param action consumer of the books
+     */
+    public void forEachBook(Consumer<Book> action){
+        int after = Integer.MIN_VALUE;
+        List<Book> page;
+        do {
+            page = bookRepository.findPage(after, WALK_PAGE_SIZE);
+            for (Book book : page) {
+                action.accept(book);
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getBookId();
+            }
+        } while (page.size() == WALK_PAGE_SIZE);
+    }
+
+    /**
+     * @param bookId id of the book
+     * @return current stamp of the book, books not written since the start share the initial
+     * version, null when there is no book with the id
+     */
+    public BookStamp bookStamp(int bookId){
+        BookStamp stamp = stamps.get(bookId);
+        if (stamp != null) {
+            return stamp;
+        }
+        //Without a stamp the book was not written since the start or since the stamps were dropped,
+        //or does not exist at all. The resources answer a missing book with 404 without searching
+        //for it, so the miss is counted here.
+        long start = metrics.start();
+        BookStamp floor = floorStamp;
+        if (!isStored(bookId)) {
+            metrics.recordSearch(start, false);
+            return null;
         }
+        return new BookStamp(epoch, bookId, floor.getVersion(), floor.getLastModified());
+    }
+
+    /**
+     * @return ETag of the catalog, it changes whenever any book is written
+     */
+    public String catalogETag(){
+        return "W/\"" + epoch + "-c" + catalogVersion.get() + "\"";
+    }
 
-        books.add(book);
+    public Book addBook(Book book){
+        long start = metrics.start();
+        if (book.getBookId() != 0 && !isExplicitId(book.getBookId())) {
+            throw new InvalidBookQueryException(idOutOfRange(book.getBookId()));
+        }
+        boolean generated = book.getBookId() == 0;
+        if (generated) {
+            book = book.withBookId(claimGeneratedId());
+        } else {
+            idAllocator.advancePast(book.getBookId());
+            idClaims.claim(book.getBookId());
+        }
+        book = internName(book);
+        try {
+            Book previous = generated ? null : bookRepository.findById(book.getBookId());
+            bookRepository.save(book);
+            touch(book.getBookId());
+            changed(previous, book);
+        } finally {
+            idClaims.release(book.getBookId());
+        }
+        metrics.recordAdd(start);
         return book;
 
     }
-    public Book searchBook(int id){
-        for(Book book: books){
-            if(book.getBookId() ==id){
-                return book;
+
+    /**
+     * Adds the books as one batch write to the store
+     *
+     * @param books      books to add, null entries are reported as bad requests
+     * @param firstIndex index reported for the first book
+     * @return outcome for every book, in the order of the books
+     */
+    public List<BookBatchItem> addBooks(List<Book> books, int firstIndex){
+        long start = metrics.start();
+        List<BookBatchItem> items = new ArrayList<>(books.size());
+        List<Book> batch = new ArrayList<>(books.size());
+        List<Book> previousBooks = new ArrayList<>(books.size());
+        //Later books of the batch with the same id replace the earlier ones
+        Map<Integer, Book> written = new HashMap<>();
+        List<Integer> claimed = claimIds(books, true);
+        try {
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                if (book == null) {
+                    items.add(new BookBatchItem(firstIndex + i, null, HttpStatus.BAD_REQUEST.value(), "Book is missing"));
+                    continue;
+                }
+                if (book.getBookId() != 0 && !isExplicitId(book.getBookId())) {
+                    items.add(new BookBatchItem(firstIndex + i, book.getBookId(), HttpStatus.BAD_REQUEST.value(), idOutOfRange(book.getBookId())));
+                    continue;
+                }
+                Book previous = null;
+                if (book.getBookId() == 0) {
+                    book = book.withBookId(claimGeneratedId());
+                    claimed.add(book.getBookId());
+                } else {
+                    previous = written.containsKey(book.getBookId()) ? written.get(book.getBookId()) : bookRepository.findById(book.getBookId());
+                }
+                book = internName(book);
+                written.put(book.getBookId(), book);
+                batch.add(book);
+                previousBooks.add(previous);
+                items.add(new BookBatchItem(firstIndex + i, book.getBookId(), HttpStatus.CREATED.value(), null));
+            }
+            bookRepository.saveAll(batch);
+            touchAll(batch);
+            changedAll(previousBooks, batch);
+        } finally {
+            releaseIds(claimed);
+        }
+        metrics.recordAddBatch(start);
+        return items;
+    }
+
+    //Generated ids skip ids which are stored or being written, the id stays claimed until released
+    private int claimGeneratedId(){
+        int id;
+        do {
+            id = idAllocator.nextId();
+        } while (!idClaims.claimGenerated(id, this::isStored));
+        return id;
+    }
+
+    //Claims the ids the books bring along in ascending order, so writes of many books never wait
+    //for each other in a circle. Adds also keep the allocator clear of the ids before any id is generated.
+    private List<Integer> claimIds(List<Book> books, boolean adding){
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (Book book : books) {
+            if (book != null && isExplicitId(book.getBookId())) {
+                ids.add(book.getBookId());
             }
         }
-        return  null;
+        List<Integer> claimed = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            if (adding) {
+                idAllocator.advancePast(id);
+            }
+            idClaims.claim(id);
+            claimed.add(id);
+        }
+        return claimed;
+    }
+
+    private void releaseIds(List<Integer> claimed){
+        for (int id : claimed) {
+            idClaims.release(id);
+        }
     }
 
+    private boolean isStored(int bookId){
+        return bookRepository.findById(bookId) != null;
+    }
+
+    //Paged listings start after id 0, so a book below 1 would never be listed
+    private static boolean isExplicitId(int bookId){
+        return bookId >= 1 && bookId <= BookIdAllocator.MAX_EXPLICIT_ID;
+    }
+
+    private static String idOutOfRange(int bookId){
+        return "Book id " + bookId + " must be between 1 and " + BookIdAllocator.MAX_EXPLICIT_ID + ", or left out to have one generated";
+    }
+
+    private Book internName(Book book){
+        if (!internNames || book.getBookName() == null) {
+            return book;
+        }
+        return book.withBookName(book.getBookName().intern());
+    }
+
+    public Book searchBook(int id){
+        long start = metrics.start();
+        Book book = bookRepository.findById(id);
+        metrics.recordSearch(start, book != null);
+        return book;
+    }
+
+    //Stored books are never changed, the update stores a copy with the new name
     public Book updateBook(Book book){
-        Book oldBook = searchBook(book.getBookId());
-        oldBook.setBookName(book.getBookName());
-        return oldBook;
+        long start = metrics.start();
+        idClaims.claim(book.getBookId());
+        Book newBook;
+        try {
+            Book oldBook = bookRepository.findById(book.getBookId());
+            if (oldBook == null) {
+                throw new BookNotFoundException("Book not exsits for ID" + book.getBookId());
+            }
+            newBook = internName(oldBook.withBookName(book.getBookName()));
+            bookRepository.save(newBook);
+            touch(newBook.getBookId());
+            changed(oldBook, newBook);
+        } finally {
+            idClaims.release(book.getBookId());
+        }
+        metrics.recordUpdate(start);
+        return newBook;
+    }
+
+    /**
+     * Updates the books as one batch write to the store
+     *
+     * @param books      books to update, identified by their book id
+     * @param firstIndex index reported for the first book
+     * @return outcome for every book, in the order of the books
+     */
+    public List<BookBatchItem> updateBooks(List<Book> books, int firstIndex){
+        long start = metrics.start();
+        List<BookBatchItem> items = new ArrayList<>(books.size());
+        List<Book> batch = new ArrayList<>(books.size());
+        List<Book> previousBooks = new ArrayList<>(books.size());
+        //Later updates of the same book in the batch start from the earlier ones
+        Map<Integer, Book> written = new HashMap<>();
+        List<Integer> claimed = claimIds(books, false);
+        try {
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                if (book == null || book.getBookId() == 0) {
+                    items.add(new BookBatchItem(firstIndex + i, null, HttpStatus.BAD_REQUEST.value(), "Book id is missing"));
+                    continue;
+                }
+                Book oldBook = written.containsKey(book.getBookId()) ? written.get(book.getBookId()) : bookRepository.findById(book.getBookId());
+                if (oldBook == null) {
+                    items.add(new BookBatchItem(firstIndex + i, book.getBookId(), HttpStatus.NOT_FOUND.value(),
+                            "Book not exsits for ID" + book.getBookId()));
+                    continue;
+                }
+                Book newBook = internName(oldBook.withBookName(book.getBookName()));
+                written.put(newBook.getBookId(), newBook);
+                previousBooks.add(oldBook);
+                batch.add(newBook);
+                items.add(new BookBatchItem(firstIndex + i, book.getBookId(), HttpStatus.OK.value(), null));
+            }
+            bookRepository.saveAll(batch);
+            touchAll(batch);
+            changedAll(previousBooks, batch);
+        } finally {
+            releaseIds(claimed);
+        }
+        metrics.recordUpdateBatch(start);
+        return items;
+    }
+
+    //Runs before the journal and the store close, as they are destroyed after the beans using them
+    @PreDestroy
+    public void close(){
+        writeBehind.close();
+    }
+
+    private void touch(int bookId){
+        long version = catalogVersion.incrementAndGet();
+        stamps.put(bookId, new BookStamp(epoch, bookId, version, System.currentTimeMillis()));
+        if (stamps.size() > maxStamps) {
+            dropStamps();
+        }
+    }
+
+    //Bulk loads would otherwise keep one stamp on the heap for every book they write. The floor
+    //is raised before the stamps go, so a reader which misses a stamp sees the raised floor.
+    private synchronized void dropStamps(){
+        if (stamps.size() <= maxStamps) {
+            return;
+        }
+        floorStamp = new BookStamp(epoch, 0, catalogVersion.get(), System.currentTimeMillis());
+        stamps.clear();
+    }
+
+    private void changed(Book previous, Book current){
+        for (BookChangeListener listener : listeners) {
+            listener.bookChanged(previous, current);
+        }
+    }
+
+    private void changedAll(List<Book> previousBooks, List<Book> books){
+        for (int i = 0; i < books.size(); i++) {
+            changed(previousBooks.get(i), books.get(i));
+        }
+    }
+
+    private void touchAll(List<Book> books){
+        for (Book book : books) {
+            touch(book.getBookId());
+        }
     }
 }
@@ -0,0 +1,35 @@
+package com.yigit.web;
+
+/**
+ * Version of a book as seen by HTTP clients. A new stamp is created on every write of the book
+ * through the BookService, so a stamp never changes once it has been handed out.
+ * Stamps are kept for the books written last, up to book.stamps.max of them, so the ETag is
+ * built on request rather than kept.
+ */
+public final class BookStamp {
+    private final String epoch;
+    private final int bookId;
+    private final long version;
+    private final long lastModified;
+
+    BookStamp(String epoch, int bookId, long version, long lastModified) {
+        this.epoch = epoch;
+        this.bookId = bookId;
+        this.version = version;
+        //HTTP dates carry seconds only
+        this.lastModified = lastModified - lastModified % 1000;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    //Weak, so the server may still compress the response
+    public String getETag() {
+        return "W/\"" + epoch + "-" + bookId + "-" + version + "\"";
+    }
+}
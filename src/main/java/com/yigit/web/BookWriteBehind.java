@@ -0,0 +1,78 @@
+package com.yigit.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer in front of the book store, switched on with book.write-behind.enabled.
+ * Books are written to a buffer which reads see at once, and a writer thread saves them to the
+ * store in batches of up to book.write-behind.batch-size books, every book only in its latest version.
+ * book.write-behind.durability decides when a write returns: memory returns once the book is
+ * buffered and loses the buffered books on a crash, store returns once its batch is in the store.
+ * On shutdown the buffer is written to the store before the store closes.
+ */
+@Component
+public class BookWriteBehind {
+
+    //Leaves the store alone, for BookServices and indexes built outside of Spring
+    public static final BookWriteBehind DISABLED = new BookWriteBehind(false, 0, 0, 0, "memory", BookMetrics.DISABLED);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final boolean waitForStore;
+    private final BookMetrics metrics;
+
+    private volatile WriteBehindBookRepository repository;
+
+    public BookWriteBehind(@Value("${book.write-behind.enabled:false}") boolean enabled,
+                           @Value("${book.write-behind.capacity:65536}") int capacity,
+                           @Value("${book.write-behind.batch-size:1000}") int batchSize,
+                           @Value("${book.write-behind.max-delay-ms:10}") long maxDelayMillis,
+                           @Value("${book.write-behind.durability:memory}") String durability,
+                           BookMetrics metrics) {
+        if (!"memory".equals(durability) && !"store".equals(durability)) {
+            throw new IllegalArgumentException("book.write-behind.durability must be memory or store, not " + durability);
+        }
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.waitForStore = "store".equals(durability);
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param store store to write the books to
+     * @return store which buffers the writes, or the given store when write-behind is off
+     */
+    public BookRepository open(BookRepository store) {
+        if (!enabled) {
+            return store;
+        }
+        repository = new WriteBehindBookRepository(store, capacity, batchSize, maxDelayMillis, waitForStore, metrics);
+        return repository;
+    }
+
+    /**
+     * Lets views of the catalog which look books up in the store, such as the indexes, see
+     * the buffered books
+     *
+     * @param bookId id of the book
+     * @return book written to the buffer which may not be in the store yet, or null
+     */
+    public Book findPending(int bookId) {
+        WriteBehindBookRepository buffer = repository;
+        return buffer == null ? null : buffer.findPending(bookId);
+    }
+
+    /**
+     * Writes the buffered books to the store and stops the writer thread
+     */
+    public void close() {
+        if (repository != null) {
+            repository.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Writes books and lists of books by copying the bytes kept in the BookJsonCache to the
+ * response, lists are assembled from the cached bytes of their books.
+ * Elements of a list which are not books, such as projected books, go through the ObjectMapper.
+ * Only writes, reading is left to the Jackson converter.
+ */
+public class CachedBookJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final BookJsonCache bookJsonCache;
+    private final ObjectMapper objectMapper;
+
+    public CachedBookJsonHttpMessageConverter(BookJsonCache bookJsonCache, ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.bookJsonCache = bookJsonCache;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Book.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz);
+    }
+
+    //Collections qualify when their elements are declared as books or not declared at all
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        Class<?> raw = resolved.resolve(clazz);
+        if (Book.class.isAssignableFrom(raw)) {
+            return true;
+        }
+        if (!Collection.class.isAssignableFrom(raw)) {
+            return false;
+        }
+        Class<?> element = resolved.asCollection().getGeneric(0).resolve(Object.class);
+        return element == Object.class || Book.class.isAssignableFrom(element);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        if (value instanceof Book) {
+            out.write(bookJsonCache.toJson((Book) value));
+            return;
+        }
+
+        out.write('[');
+        boolean first = true;
+        for (Object element : (Collection<?>) value) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            if (element instanceof Book) {
+                out.write(bookJsonCache.toJson((Book) element));
+            } else {
+                out.write(objectMapper.writeValueAsBytes(element));
+            }
+        }
+        out.write(']');
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Books are read by the Jackson converter", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Books are read by the Jackson converter", inputMessage);
+    }
+}
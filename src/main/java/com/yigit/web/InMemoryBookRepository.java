@@ -0,0 +1,60 @@
+package com.yigit.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Default store, keeps every book on the heap in a hash index keyed by book id
+@Component
+@ConditionalOnProperty(name = "book.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryBookRepository implements BookRepository {
+
+    private final IntHashIndex<Book> books = new IntHashIndex<>();
+    //Ordered view of the ids, pages and full listings walk it instead of sorting the books
+    private final NavigableSet<Integer> orderedIds = new ConcurrentSkipListSet<>();
+
+    @Override
+    public List<Book> findAll() {
+        List<Book> all = new ArrayList<>(books.size());
+        for (Integer id : orderedIds) {
+            all.add(books.get(id));
+        }
+        return all;
+    }
+
+    @Override
+    public List<Book> findPage(int afterBookId, int limit) {
+        List<Book> page = new ArrayList<>(Math.min(limit, books.size()));
+        for (Integer id : orderedIds.tailSet(afterBookId, false)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(books.get(id));
+        }
+        return page;
+    }
+
+    @Override
+    public Book findById(int bookId) {
+        return books.get(bookId);
+    }
+
+    //The id goes to the ordered index after the book is in the hash index,
+    //so every id seen in the ordered index resolves to a book
+    @Override
+    public Book save(Book book) {
+        if (books.put(book.getBookId(), book) == null) {
+            orderedIds.add(book.getBookId());
+        }
+        return book;
+    }
+
+    @Override
+    public int count() {
+        return books.size();
+    }
+}
@@ -0,0 +1,268 @@
+package com.yigit.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent hash index keyed by a primitive int, so lookups neither box the key nor
+ * walk a list.
+ * The key space is split over a fixed number of stripes, each one an open addressing
+ * table guarded by its own StampedLock. Writers only block writers of the same stripe and
+ * lookups are optimistic, falling back to the read lock only when they race with a writer.
+ *
+ * @param <V> type of the indexed values, null values are not supported
+ */
+final class IntHashIndex<V> {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    IntHashIndex() {
+        stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * @param key key of the value
+     * @return the value stored under the key or null
+     */
+    V get(int key) {
+        int hash = hash(key);
+        Stripe<V> stripe = stripes[hash >>> (32 - STRIPE_BITS)];
+        long stamp = stripe.lock.tryOptimisticRead();
+        V value = stripe.table.find(key, hash);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                value = stripe.table.find(key, hash);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param key   key of the value
+     * @param value value to store, replacing any value already stored under the key
+     * @return the replaced value or null
+     */
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int hash = hash(key);
+        Stripe<V> stripe = stripes[hash >>> (32 - STRIPE_BITS)];
+        long stamp = stripe.lock.writeLock();
+        try {
+            V previous = stripe.put(key, hash, value);
+            if (previous == null) {
+                size.incrementAndGet();
+            }
+            return previous;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the value under the key with the result of the remapping function, atomically
+     * with respect to other writes of the key
+     *
+     * @param key       key of the value
+     * @param remapping gets the current value or null and returns the new value
+     * @return the new value
+     */
+    V update(int key, UnaryOperator<V> remapping) {
+        int hash = hash(key);
+        Stripe<V> stripe = stripes[hash >>> (32 - STRIPE_BITS)];
+        long stamp = stripe.lock.writeLock();
+        try {
+            V value = remapping.apply(stripe.table.find(key, hash));
+            if (value == null) {
+                throw new IllegalArgumentException("Null values are not supported");
+            }
+            if (stripe.put(key, hash, value) == null) {
+                size.incrementAndGet();
+            }
+            return value;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @param key key of the value
+     * @return the removed value or null
+     */
+    V remove(int key) {
+        int hash = hash(key);
+        Stripe<V> stripe = stripes[hash >>> (32 - STRIPE_BITS)];
+        long stamp = stripe.lock.writeLock();
+        try {
+            V previous = stripe.table.remove(key, hash);
+            if (previous != null) {
+                stripe.size--;
+                size.decrementAndGet();
+            }
+            return previous;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every value, one stripe at a time
+     */
+    void clear() {
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.writeLock();
+            try {
+                size.addAndGet(-stripe.size);
+                stripe.size = 0;
+                stripe.table = new Table<>(INITIAL_CAPACITY);
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Passes every value to the action, one stripe at a time. Values written to a stripe
+     * after it has been visited are not seen.
+     *
+     * @param action consumer of the values
+     */
+    void forEachValue(Consumer<? super V> action) {
+        for (Stripe<V> stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                stripe.table.forEach(action);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Stripe<V> {
+        final StampedLock lock = new StampedLock();
+        Table<V> table = new Table<>(INITIAL_CAPACITY);
+        int size;
+
+        V put(int key, int hash, V value) {
+            V previous = table.put(key, hash, value);
+            if (previous == null && ++size * 2 > table.keys.length) {
+                table = table.resize();
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Linear probing table. A slot is empty while its value is null, and the load factor
+     * stays at or below one half so probes always reach an empty slot. Tables are replaced
+     * rather than grown in place, which keeps optimistic readers on a consistent pair of arrays.
+     */
+    private static final class Table<V> {
+        final int[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        V find(int key, int hash) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return (V) value;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(int key, int hash, V value) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                Object current = values[i];
+                if (current == null) {
+                    keys[i] = key;
+                    values[i] = value;
+                    return null;
+                }
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return (V) current;
+                }
+            }
+        }
+
+        //Moves the later entries of the probe run back over the emptied slot, so no lookup stops
+        //early and no tombstones pile up
+        @SuppressWarnings("unchecked")
+        V remove(int key, int hash) {
+            int slot = hash & mask;
+            for (; keys[slot] != key || values[slot] == null; slot = (slot + 1) & mask) {
+                if (values[slot] == null) {
+                    return null;
+                }
+            }
+            V removed = (V) values[slot];
+            int gap = slot;
+            for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                //An entry may fill the gap when the gap lies between its home slot and its slot
+                int home = hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+            return removed;
+        }
+
+        @SuppressWarnings("unchecked")
+        Table<V> resize() {
+            Table<V> bigger = new Table<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) {
+                    bigger.put(keys[i], hash(keys[i]), (V) values[i]);
+                }
+            }
+            return bigger;
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<? super V> action) {
+            for (Object value : values) {
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.yigit.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Store which keeps the books in a database table, switched on with book.store=jdbc and
+ * the spring.datasource properties. Without them the application runs on an in-memory H2 database.
+ * Every statement is a prepared statement with bind parameters, so the driver can keep it
+ * prepared per pooled connection. Batches go to the database as JDBC batches of BATCH_SIZE
+ * books, and full listings are read as keyset pages over the primary key.
+ * H2 and PostgreSQL are supported, they differ in the statement which inserts or replaces a book.
+ */
+@Component
+@ConditionalOnProperty(name = "book.store", havingValue = "jdbc")
+public class JdbcBookRepository implements BookRepository {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int WALK_PAGE_SIZE = 10_000;
+
+    private static final String SELECT = "SELECT book_id, book_name, published_date FROM books";
+    private static final RowMapper<Book> BOOK = (row, rowNumber) -> {
+        OffsetDateTime publishedDate = row.getObject(3, OffsetDateTime.class);
+        return new Book(row.getInt(1), row.getString(2), publishedDate == null ? null : publishedDate.toInstant());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String upsert;
+
+    public JdbcBookRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.upsert = upsertStatement(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS books ("
+                + "book_id INTEGER PRIMARY KEY, "
+                + "book_name VARCHAR(1024), "
+                + "published_date TIMESTAMP WITH TIME ZONE)");
+    }
+
+    @Override
+    public List<Book> findAll() {
+        List<Book> all = new ArrayList<>(count());
+        int after = Integer.MIN_VALUE;
+        List<Book> page;
+        do {
+            page = findPage(after, WALK_PAGE_SIZE);
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getBookId();
+            }
+        } while (page.size() == WALK_PAGE_SIZE);
+        return all;
+    }
+
+    @Override
+    public List<Book> findPage(int afterBookId, int limit) {
+        return jdbcTemplate.query(SELECT + " WHERE book_id > ? ORDER BY book_id FETCH FIRST ? ROWS ONLY",
+                BOOK, afterBookId, limit);
+    }
+
+    @Override
+    public Book findById(int bookId) {
+        List<Book> books = jdbcTemplate.query(SELECT + " WHERE book_id = ?", BOOK, bookId);
+        return books.isEmpty() ? null : books.get(0);
+    }
+
+    @Override
+    public Book save(Book book) {
+        jdbcTemplate.update(upsert, statement -> bind(statement, book));
+        return book;
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        if (!books.isEmpty()) {
+            jdbcTemplate.batchUpdate(upsert, books, BATCH_SIZE, JdbcBookRepository::bind);
+        }
+    }
+
+    @Override
+    public int count() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private static void bind(PreparedStatement statement, Book book) throws SQLException {
+        statement.setInt(1, book.getBookId());
+        statement.setString(2, book.getBookName());
+        if (book.getPublishedDate() == null) {
+            statement.setNull(3, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            statement.setObject(3, book.getPublishedDate().atOffset(ZoneOffset.UTC));
+        }
+    }
+
+    private static String upsertStatement(DataSource dataSource) {
+        String database;
+        try {
+            database = JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> metaData.getDatabaseProductName());
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("The book database cannot be reached", e);
+        }
+        switch (database) {
+            case "H2":
+                return "MERGE INTO books (book_id, book_name, published_date) KEY (book_id) VALUES (?, ?, ?)";
+            case "PostgreSQL":
+                return "INSERT INTO books (book_id, book_name, published_date) VALUES (?, ?, ?) "
+                        + "ON CONFLICT (book_id) DO UPDATE SET book_name = EXCLUDED.book_name, published_date = EXCLUDED.published_date";
+            default:
+                throw new IllegalStateException("Books cannot be stored in " + database + ", use H2 or PostgreSQL");
+        }
+    }
+}
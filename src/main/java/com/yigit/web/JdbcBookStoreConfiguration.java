@@ -0,0 +1,28 @@
+package com.yigit.web;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Connection pool of JdbcBookRepository, created only with book.store=jdbc.
+ * DataSourceAutoConfiguration is excluded in MyApplication, since it would open a pool on an
+ * in-memory H2 database on every start, whichever store is used. This pool is built from the
+ * same spring.datasource and spring.datasource.hikari properties, and falls back to in-memory H2
+ * without a url as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "book.store", havingValue = "jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcBookStoreConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
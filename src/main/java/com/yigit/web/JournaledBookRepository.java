@@ -0,0 +1,50 @@
+package com.yigit.web;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+//Logs every write to the journal before the store sees it, reads go straight to the store
+final class JournaledBookRepository implements BookRepository {
+
+    private final BookRepository store;
+    private final BookJournal journal;
+
+    JournaledBookRepository(BookRepository store, BookJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return store.findAll();
+    }
+
+    @Override
+    public List<Book> findPage(int afterBookId, int limit) {
+        return store.findPage(afterBookId, limit);
+    }
+
+    @Override
+    public Book findById(int bookId) {
+        return store.findById(bookId);
+    }
+
+    @Override
+    public Book save(Book book) {
+        journal.append(Collections.singletonList(book), () -> store.save(book));
+        return book;
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        if (!books.isEmpty()) {
+            journal.append(books, () -> store.saveAll(books));
+        }
+    }
+
+    @Override
+    public int count() {
+        return store.count();
+    }
+}
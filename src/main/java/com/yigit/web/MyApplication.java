@@ -2,9 +2,11 @@ package com.yigit.web;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 
 
-@SpringBootApplication
+//The pool of the jdbc store comes from JdbcBookStoreConfiguration, the other stores need none
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
 public class MyApplication {
     public static void main(String[] args) {
         SpringApplication.run(MyApplication.class, args);
@@ -0,0 +1,316 @@
+package com.yigit.web;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store for very large catalogs which keeps the books outside of the Java heap, switched on
+ * with book.store=offheap.
+ * Books are rows of fixed width columns in direct buffers: id, publication date and the offset
+ * and length of the UTF-8 name in a separate name arena. An open addressing table, also off-heap,
+ * maps a book id to its row, and a bitmap over the id space gives the id order for pages.
+ * Book objects only exist while a caller holds them, so the live heap does not grow with the
+ * catalog and the garbage collector has nothing to trace for stored books.
+ * Renaming a book appends the new name to the arena, the old name bytes are not reclaimed.
+ */
+@Component
+@ConditionalOnProperty(name = "book.store", havingValue = "offheap")
+public class OffHeapBookRepository implements BookRepository {
+
+    private static final int ROWS_PER_CHUNK = 1 << 20;
+    private static final int ARENA_CHUNK_SIZE = 64 << 20;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_NAME = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Column ids = new Column(Integer.BYTES);
+    private final Column dates = new Column(Long.BYTES);
+    private final Column nameOffsets = new Column(Long.BYTES);
+    private final Column nameLengths = new Column(Integer.BYTES);
+    private final NameArena names = new NameArena();
+    private final RowIndex rowIndex = new RowIndex();
+    private final IdBitmap idOrder = new IdBitmap();
+    private int rowCount;
+
+    @Override
+    public List<Book> findAll() {
+        return findPage(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> findPage(int afterBookId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Book> page = new ArrayList<>(Math.min(limit, rowCount));
+            long id = idOrder.nextId(afterBookId);
+            while (id != IdBitmap.NONE && page.size() < limit) {
+                page.add(readRow(rowIndex.find((int) id)));
+                id = idOrder.nextId((int) id);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Book findById(int bookId) {
+        lock.readLock().lock();
+        try {
+            int row = rowIndex.find(bookId);
+            return row < 0 ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Book save(Book book) {
+        lock.writeLock().lock();
+        try {
+            write(book);
+            return book;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //One lock acquisition for the whole batch
+    @Override
+    public void saveAll(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                write(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Book book) {
+        int row = rowIndex.find(book.getBookId());
+        if (row < 0) {
+            row = rowCount++;
+            ids.putInt(row, book.getBookId());
+            rowIndex.insert(book.getBookId(), row);
+            idOrder.add(book.getBookId());
+        }
+        dates.putLong(row, book.getPublishedDate() == null ? NO_DATE : book.getPublishedDate().toEpochMilli());
+        if (book.getBookName() == null) {
+            nameLengths.putInt(row, NO_NAME);
+        } else {
+            byte[] name = book.getBookName().getBytes(StandardCharsets.UTF_8);
+            nameOffsets.putLong(row, names.append(name));
+            nameLengths.putInt(row, name.length);
+        }
+    }
+
+    private Book readRow(int row) {
+        long date = dates.getLong(row);
+        int nameLength = nameLengths.getInt(row);
+        String name = nameLength == NO_NAME ? null : names.read(nameOffsets.getLong(row), nameLength);
+        return new Book(ids.getInt(row), name, date == NO_DATE ? null : Instant.ofEpochMilli(date));
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    //Fixed width values addressed by row, kept in direct buffers allocated one chunk of rows at a time
+    private static final class Column {
+        private final int width;
+        private ByteBuffer[] chunks = new ByteBuffer[16];
+
+        Column(int width) {
+            this.width = width;
+        }
+
+        int getInt(int row) {
+            return chunks[row / ROWS_PER_CHUNK].getInt(row % ROWS_PER_CHUNK * width);
+        }
+
+        long getLong(int row) {
+            return chunks[row / ROWS_PER_CHUNK].getLong(row % ROWS_PER_CHUNK * width);
+        }
+
+        void putInt(int row, int value) {
+            chunk(row).putInt(row % ROWS_PER_CHUNK * width, value);
+        }
+
+        void putLong(int row, long value) {
+            chunk(row).putLong(row % ROWS_PER_CHUNK * width, value);
+        }
+
+        private ByteBuffer chunk(int row) {
+            int index = row / ROWS_PER_CHUNK;
+            if (index >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, index + 1));
+            }
+            if (chunks[index] == null) {
+                chunks[index] = allocate(ROWS_PER_CHUNK * width);
+            }
+            return chunks[index];
+        }
+    }
+
+    //Append only store of the UTF-8 names, a name never spans two chunks
+    private static final class NameArena {
+        private ByteBuffer[] chunks = new ByteBuffer[4];
+        private int chunkCount;
+        private int position = ARENA_CHUNK_SIZE;
+
+        long append(byte[] name) {
+            if (name.length > ARENA_CHUNK_SIZE) {
+                throw new IllegalArgumentException("Book name of " + name.length + " bytes is too long");
+            }
+            if (chunkCount == 0 || ARENA_CHUNK_SIZE - position < name.length) {
+                if (chunkCount == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, chunks.length * 2);
+                }
+                chunks[chunkCount++] = allocate(ARENA_CHUNK_SIZE);
+                position = 0;
+            }
+            chunks[chunkCount - 1].put(position, name);
+            long offset = (long) (chunkCount - 1) * ARENA_CHUNK_SIZE + position;
+            position += name.length;
+            return offset;
+        }
+
+        String read(long offset, int length) {
+            byte[] name = new byte[length];
+            chunks[(int) (offset / ARENA_CHUNK_SIZE)].get((int) (offset % ARENA_CHUNK_SIZE), name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Open addressing table of book id and row pairs in one direct buffer. A slot holds the row
+     * plus one, so the zeroed memory of a new buffer reads as empty slots.
+     */
+    private static final class RowIndex {
+        private static final int SLOT = 8;
+        private static final int MAX_CAPACITY = 1 << 27;
+
+        private ByteBuffer slots = allocate(1024 * SLOT);
+        private int capacity = 1024;
+        private int size;
+
+        int find(int bookId) {
+            int mask = capacity - 1;
+            for (int i = hash(bookId) & mask; ; i = (i + 1) & mask) {
+                int row = slots.getInt(i * SLOT + 4);
+                if (row == 0) {
+                    return -1;
+                }
+                if (slots.getInt(i * SLOT) == bookId) {
+                    return row - 1;
+                }
+            }
+        }
+
+        void insert(int bookId, int row) {
+            if ((size + 1) * 10L > capacity * 7L) {
+                grow();
+            }
+            place(slots, capacity, bookId, row + 1);
+            size++;
+        }
+
+        private void grow() {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("The off-heap book index is full");
+            }
+            int newCapacity = capacity * 2;
+            ByteBuffer newSlots = allocate(newCapacity * SLOT);
+            for (int i = 0; i < capacity; i++) {
+                int row = slots.getInt(i * SLOT + 4);
+                if (row != 0) {
+                    place(newSlots, newCapacity, slots.getInt(i * SLOT), row);
+                }
+            }
+            slots = newSlots;
+            capacity = newCapacity;
+        }
+
+        private static void place(ByteBuffer slots, int capacity, int bookId, int storedRow) {
+            int mask = capacity - 1;
+            int i = hash(bookId) & mask;
+            while (slots.getInt(i * SLOT + 4) != 0) {
+                i = (i + 1) & mask;
+            }
+            slots.putInt(i * SLOT, bookId);
+            slots.putInt(i * SLOT + 4, storedRow);
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * One bit per possible book id, in pages allocated on first use. Ids are shifted by 2^31
+     * so negative ids sort before positive ones.
+     */
+    private static final class IdBitmap {
+        static final long NONE = Long.MIN_VALUE;
+        private static final int PAGE_BITS = 16;
+        private static final int WORDS_PER_PAGE = (1 << PAGE_BITS) / Long.SIZE;
+
+        private final long[][] pages = new long[1 << (32 - PAGE_BITS)][];
+
+        void add(int bookId) {
+            long bit = (long) bookId - Integer.MIN_VALUE;
+            int page = (int) (bit >>> PAGE_BITS);
+            if (pages[page] == null) {
+                pages[page] = new long[WORDS_PER_PAGE];
+            }
+            int offset = (int) (bit & ((1 << PAGE_BITS) - 1));
+            pages[page][offset / Long.SIZE] |= 1L << offset;
+        }
+
+        //Smallest id greater than the given one, or NONE
+        long nextId(int afterBookId) {
+            long bit = (long) afterBookId - Integer.MIN_VALUE + 1;
+            for (int page = (int) (bit >>> PAGE_BITS); page < pages.length; page++, bit = (long) page << PAGE_BITS) {
+                long[] words = pages[page];
+                if (words == null) {
+                    continue;
+                }
+                int offset = (int) (bit & ((1 << PAGE_BITS) - 1));
+                for (int word = offset / Long.SIZE; word < WORDS_PER_PAGE; word++) {
+                    long bits = words[word];
+                    if (word == offset / Long.SIZE) {
+                        bits &= -1L << offset;
+                    }
+                    if (bits != 0) {
+                        long found = ((long) page << PAGE_BITS) + (long) word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        return found + Integer.MIN_VALUE;
+                    }
+                }
+            }
+            return NONE;
+        }
+    }
+}
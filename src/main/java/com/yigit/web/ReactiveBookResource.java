@@ -0,0 +1,284 @@
+package com.yigit.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The REST methods of BookResource on WebFlux, selected with the reactive profile.
+ * Handlers return Mono and Flux so streamed catalogs and slow clients wait for the network
+ * without holding a thread, both stacks share the same BookService and store.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookResource {
+
+    //Books encoded into one buffer of /books/export
+    private static final int EXPORT_CHUNK = 256;
+
+    private final ReactiveBookService bookService;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookDateIndex bookDateIndex;
+    private final ObjectWriter exportWriter;
+    private final ObjectMapper objectMapper;
+    private final BookMetrics bookMetrics;
+    private final BookChangeFeed bookChangeFeed;
+    private final BookRequests bookRequests;
+    //Change streams block while they wait for the next change, each on a virtual thread
+    private final Scheduler changeStreamScheduler = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "book-changes-stream");
+
+    public ReactiveBookResource(ReactiveBookService bookService, BookSearchIndex bookSearchIndex,
+                                BookDateIndex bookDateIndex, ObjectMapper objectMapper, BookMetrics bookMetrics,
+                                BookChangeFeed bookChangeFeed, BookRequests bookRequests) {
+        this.bookService = bookService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookDateIndex = bookDateIndex;
+        this.objectMapper = objectMapper;
+        this.bookMetrics = bookMetrics;
+        this.bookChangeFeed = bookChangeFeed;
+        this.bookRequests = bookRequests;
+        this.exportWriter = objectMapper.writerFor(Book.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    //Same parameters as BookResource. Without after and limit the catalog is streamed as a JSON
+    //array page by page while the client reads it
+    @GetMapping("/books")
+    public Mono<ResponseEntity<Flux<Object>>> getAllBooks(@RequestParam(required = false) Integer after,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String fields,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate publishedFrom,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate publishedTo,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant afterDate,
+                                                          ServerWebExchange exchange) {
+        if (exchange.checkNotModified(bookService.catalogETag())) {
+            return Mono.empty();
+        }
+
+        BookFields projection = BookRequests.projection(fields);
+
+        if (publishedFrom != null || publishedTo != null) {
+            int pageSize = bookRequests.pageSize(limit);
+            return bookService.read(() -> bookDateIndex.findPublished(BookDateIndex.startOfDay(publishedFrom),
+                            BookDateIndex.endOfDay(publishedTo), afterDate, after == null ? 0 : after, pageSize))
+                    .map(page -> pageResponse(exchange, page, pageSize, true, projection));
+        }
+
+        if (after == null && limit == null) {
+            //The size is only known once the whole catalog went out
+            AtomicInteger sent = new AtomicInteger();
+            Flux<Object> books = bookService.findAllBooks()
+                    .doOnNext(book -> sent.incrementAndGet())
+                    .doOnComplete(() -> bookMetrics.recordListSize(sent.get()))
+                    .map(book -> projection == null ? book : projection.project(book));
+            return Mono.just(ResponseEntity.ok(books));
+        }
+
+        int pageSize = bookRequests.pageSize(limit);
+        return bookService.findBooks(after == null ? 0 : after, pageSize)
+                .map(page -> pageResponse(exchange, page, pageSize, false, projection));
+    }
+
+    //One JSON document per line, written in buffers of EXPORT_CHUNK books as the client reads
+    @GetMapping(value = "/books/export", produces = BookResource.NDJSON)
+    public Flux<DataBuffer> exportBooks(ServerWebExchange exchange) {
+        DataBufferFactory buffers = exchange.getResponse().bufferFactory();
+        return bookService.findAllBooks()
+                .buffer(EXPORT_CHUNK)
+                .map(books -> buffers.wrap(encodeLines(books)));
+    }
+
+    //Same as BookResource, 410 with resyncRequired when the changes after since are gone
+    @GetMapping("/books/changes")
+    public Mono<ResponseEntity<BookChangePage>> getChanges(@RequestParam long since,
+                                                           @RequestParam(required = false) String epoch,
+                                                           @RequestParam(required = false) Integer limit) {
+        int pageSize = bookRequests.pageSize(limit);
+        return bookService.read(() -> BookRequests.changesResponse(bookChangeFeed.read(epoch, since, pageSize)));
+    }
+
+    //Same events as BookResource. The next page of changes is only read once the client took the
+    //previous one, the wait for new changes runs on a virtual thread and never on an event loop
+    @GetMapping(value = "/books/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChanges(@RequestParam(required = false) Long since,
+                                                       @RequestParam(required = false) String epoch,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String clientEpoch = BookRequests.streamEpoch(epoch, lastEventId);
+        long start = bookRequests.streamStart(since, lastEventId);
+        int maxPageSize = bookRequests.getMaxPageSize();
+        long changesHeartbeatMillis = bookRequests.getChangesHeartbeatMillis();
+        return Flux.<List<ServerSentEvent<Object>>, long[]>generate(() -> new long[]{start}, (cursor, sink) -> {
+            BookChangePage page = bookChangeFeed.read(clientEpoch, cursor[0], maxPageSize);
+            if (page.isResyncRequired()) {
+                sink.next(List.of(ServerSentEvent.<Object>builder(page).event("resync").build()));
+                sink.complete();
+                return cursor;
+            }
+            List<ServerSentEvent<Object>> events = new ArrayList<>(page.getChanges().size());
+            for (BookChange change : page.getChanges()) {
+                events.add(ServerSentEvent.<Object>builder(change)
+                        .id(BookChangeFeed.eventId(page.getEpoch(), change.getSequence()))
+                        .event("change")
+                        .build());
+            }
+            cursor[0] = page.getSequence();
+            try {
+                if (events.isEmpty() && !bookChangeFeed.awaitChange(cursor[0], changesHeartbeatMillis)) {
+                    events.add(ServerSentEvent.<Object>builder().comment("heartbeat").build());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sink.complete();
+                return cursor;
+            }
+            sink.next(events);
+            return cursor;
+        }).concatMapIterable(events -> events).subscribeOn(changeStreamScheduler);
+    }
+
+    //Number of books published per day or month between from and to, both inclusive UTC days
+    @GetMapping("/books/published-counts")
+    public Mono<ResponseEntity<List<BookDateBucket>>> countPublishedBooks(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                          @RequestParam(defaultValue = "day") String bucket,
+                                                                          ServerWebExchange exchange) {
+        ChronoUnit unit = BookDateIndex.bucketUnit(bucket);
+        Instant start = BookDateIndex.startOfDay(from);
+        Instant end = BookDateIndex.endOfDay(to);
+        if (exchange.checkNotModified(bookService.catalogETag())) {
+            return Mono.empty();
+        }
+        return bookService.read(() -> ResponseEntity.ok(bookDateIndex.countPublished(start, end, unit)));
+    }
+
+    //Books whose name holds every word of q, the last word may also be the start of a word
+    @GetMapping("/books/search")
+    public Mono<List<?>> searchBooks(@RequestParam String q,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String fields) {
+        int size = bookRequests.searchSize(q, limit);
+        BookFields projection = BookRequests.projection(fields);
+        return bookService.read(() -> BookFields.project(bookSearchIndex.search(q, size), projection));
+    }
+
+    @GetMapping("/books/{bookId}")
+    public Mono<Book> retriveBook(@PathVariable int bookId, ServerWebExchange exchange) {
+        //The stamp is read before the book so the ETag is never newer than the body
+        return bookService.bookStamp(bookId)
+                .switchIfEmpty(Mono.error(() -> BookRequests.notFound(bookId)))
+                .flatMap(stamp -> exchange.checkNotModified(stamp.getETag(), Instant.ofEpochMilli(stamp.getLastModified()))
+                        ? Mono.<Book>empty()
+                        : bookService.searchBook(bookId)
+                                .switchIfEmpty(Mono.error(() -> BookRequests.notFound(bookId))));
+    }
+
+    @PostMapping("/books")
+    public Mono<ResponseEntity<Object>> createBook(@RequestBody Book book, ServerWebExchange exchange) {
+        return bookService.addBook(book).map(saveBook -> {
+            URI newBookLocation = UriComponentsBuilder.fromHttpRequest(exchange.getRequest())
+                    .path("/{bookId}")
+                    .buildAndExpand(saveBook.getBookId())
+                    .toUri();
+            return ResponseEntity.created(newBookLocation).build();
+        });
+    }
+
+    @PutMapping("/books/{id}")
+    public Mono<Book> updateBook(@RequestBody Book book, @PathVariable int id) {
+        BookRequests.checkPathId(book, id);
+        //The BookService answers a missing book with BookNotFoundException
+        return bookService.updateBook(book);
+    }
+
+    //Adds a JSON array of books as one batch, the response holds the outcome of every book
+    @PostMapping(value = "/books/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<BookBatchItem>> createBooks(@RequestBody List<Book> books) {
+        bookRequests.checkBatchSize(books);
+        return bookService.addBooks(books);
+    }
+
+    @PostMapping(value = "/books/batch", consumes = BookResource.NDJSON)
+    public Mono<List<BookBatchItem>> createBooks(@RequestBody Flux<Book> books) {
+        return bookService.addBooks(reportMalformed(books), bookRequests.getMaxBatchSize()).collectList();
+    }
+
+    //Updates a JSON array of books as one batch, the response holds the outcome of every book
+    @PutMapping(value = "/books/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<BookBatchItem>> updateBooks(@RequestBody List<Book> books) {
+        bookRequests.checkBatchSize(books);
+        return bookService.updateBooks(books);
+    }
+
+    @PutMapping(value = "/books/batch", consumes = BookResource.NDJSON)
+    public Mono<List<BookBatchItem>> updateBooks(@RequestBody Flux<Book> books) {
+        return bookService.updateBooks(reportMalformed(books), bookRequests.getMaxBatchSize()).collectList();
+    }
+
+    @PreDestroy
+    public void close() {
+        changeStreamScheduler.dispose();
+    }
+
+    private ResponseEntity<Flux<Object>> pageResponse(ServerWebExchange exchange, List<Book> page, int pageSize,
+                                                      boolean byDate, BookFields projection) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        String next = BookRequests.nextPageLink(UriComponentsBuilder.fromHttpRequest(exchange.getRequest()), page, pageSize, byDate);
+        if (next != null) {
+            response.header(HttpHeaders.LINK, next);
+        }
+        bookMetrics.recordListSize(page.size());
+        return response.body(Flux.<Object>fromIterable(BookFields.project(page, projection)));
+    }
+
+    //Batches read before a malformed line stay applied, the error names the line like BookResource does
+    private static Flux<Book> reportMalformed(Flux<Book> books) {
+        AtomicInteger read = new AtomicInteger();
+        return books.doOnNext(book -> read.incrementAndGet())
+                .onErrorMap(ServerWebInputException.class, e -> new InvalidBookQueryException(
+                        "Book " + read.get() + " of the stream is malformed: " + e.getMostSpecificCause().getMessage()));
+    }
+
+    private byte[] encodeLines(List<Book> books) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(books.size() * 64);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            for (Book book : books) {
+                exportWriter.writeValue(generator, book);
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+package com.yigit.web;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over BookService for the reactive stack.
+ * Reads of the memory and off-heap stores never wait, so they run on the calling event loop
+ * thread. With book.store=jdbc every read may wait for the database, reads then run on the
+ * bounded elastic scheduler like the writes do. Writes may wait for the journal to reach the
+ * disk, so they always run on the bounded elastic scheduler and never block an event loop.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookService {
+
+    private static final int WALK_PAGE_SIZE = 1000;
+
+    private final BookService bookService;
+    private final Scheduler writeScheduler = Schedulers.boundedElastic();
+    private final Scheduler readScheduler;
+
+    public ReactiveBookService(BookService bookService, @Value("${book.store:memory}") String store) {
+        this.bookService = bookService;
+        this.readScheduler = "jdbc".equals(store) ? writeScheduler : Schedulers.immediate();
+    }
+
+    /**
+     * Runs a read of the store or of a view which looks books up in the store, such as the
+     * indexes and the change feed
+     *
+     * @param read the read
+     * @param <T>  type of the result
+     * @return result of the read, on an event loop only when the store never blocks
+     */
+    public <T> Mono<T> read(Supplier<T> read) {
+        return Mono.fromSupplier(read).subscribeOn(readScheduler);
+    }
+
+    /**
+     * The whole catalog in book id order. The next page is only read once the subscriber asked
+     * for the books of the previous one, so a slow client holds one page and no thread.
+     *
+     * @return every book
+     */
+    public Flux<Book> findAllBooks() {
+        return read(() -> bookService.findBooks(Integer.MIN_VALUE, WALK_PAGE_SIZE))
+                .expand(page -> page.size() < WALK_PAGE_SIZE ? Mono.empty()
+                        : read(() -> bookService.findBooks(page.get(page.size() - 1).getBookId(), WALK_PAGE_SIZE)))
+                .concatMapIterable(page -> page);
+    }
+
+    /**
+     * @param afterBookId only books with a greater id are returned
+     * @param limit       maximum number of books
+     * @return page of books ordered by book id
+     */
+    public Mono<List<Book>> findBooks(int afterBookId, int limit) {
+        return read(() -> bookService.findBooks(afterBookId, limit));
+    }
+
+    /**
+     * @param bookId id of the book
+     * @return the book, empty when there is no book with the id
+     */
+    public Mono<Book> searchBook(int bookId) {
+        return read(() -> bookService.searchBook(bookId));
+    }
+
+    /**
+     * @param bookId id of the book
+     * @return stamp of the book, empty when there is no book with the id. Books not written since
+     * the start are looked up in the store.
+     */
+    public Mono<BookStamp> bookStamp(int bookId) {
+        return read(() -> bookService.bookStamp(bookId));
+    }
+
+    public String catalogETag() {
+        return bookService.catalogETag();
+    }
+
+    public Mono<Book> addBook(Book book) {
+        return Mono.fromCallable(() -> bookService.addBook(book)).subscribeOn(writeScheduler);
+    }
+
+    public Mono<Book> updateBook(Book book) {
+        return Mono.fromCallable(() -> bookService.updateBook(book)).subscribeOn(writeScheduler);
+    }
+
+    public Mono<List<BookBatchItem>> addBooks(List<Book> books) {
+        return Mono.fromCallable(() -> bookService.addBooks(books, 0)).subscribeOn(writeScheduler);
+    }
+
+    public Mono<List<BookBatchItem>> updateBooks(List<Book> books) {
+        return Mono.fromCallable(() -> bookService.updateBooks(books, 0)).subscribeOn(writeScheduler);
+    }
+
+    /**
+     * Adds the books of the stream in batches of batchSize books, one batch after the other
+     *
+     * @param books     books to add
+     * @param batchSize most books of one batch
+     * @return outcome for every book, in the order of the books
+     */
+    public Flux<BookBatchItem> addBooks(Flux<Book> books, int batchSize) {
+        return applyInBatches(books, batchSize, bookService::addBooks);
+    }
+
+    /**
+     * Updates the books of the stream in batches of batchSize books, one batch after the other
+     *
+     * @param books     books to update, identified by their book id
+     * @param batchSize most books of one batch
+     * @return outcome for every book, in the order of the books
+     */
+    public Flux<BookBatchItem> updateBooks(Flux<Book> books, int batchSize) {
+        return applyInBatches(books, batchSize, bookService::updateBooks);
+    }
+
+    //Every batch but the last is full, so the index of a batch gives the index of its first book
+    private Flux<BookBatchItem> applyInBatches(Flux<Book> books, int batchSize,
+                                               BiFunction<List<Book>, Integer, List<BookBatchItem>> batchOperation) {
+        return books.buffer(batchSize)
+                .index()
+                .concatMap(batch -> Mono.fromCallable(() -> batchOperation.apply(batch.getT2(), (int) (batch.getT1() * batchSize)))
+                        .subscribeOn(writeScheduler))
+                .concatMapIterable(items -> items);
+    }
+}
@@ -0,0 +1,361 @@
+package com.yigit.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Takes writes into memory and hands them to the store in batches on a writer thread.
+ * Written books wait in an ordered overlay keyed by book id, which reads consult before the
+ * store, so a book is visible as soon as it is written. Writing a book again before it reached
+ * the store replaces it in the overlay, so the store only sees its latest version.
+ * The ids waiting for the store are kept in a lock-free queue bounded to capacity ids, writers
+ * wait for room when it is full. With waitForStore set every write returns only once its batch
+ * is in the store, otherwise it returns as soon as the book is in the overlay.
+ */
+final class WriteBehindBookRepository implements BookRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindBookRepository.class);
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int WALK_PAGE_SIZE = 10_000;
+
+    private final BookRepository store;
+    private final int capacity;
+    private final int batchSize;
+    //Depth at which the writer stops waiting for more writes
+    private final int fullBatch;
+    private final long maxDelayNanos;
+    private final boolean waitForStore;
+    private final BookMetrics metrics;
+
+    private final ConcurrentNavigableMap<Integer, Book> overlay = new ConcurrentSkipListMap<>();
+    private final ConcurrentLinkedQueue<Integer> dirtyIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    //Ids of the overlay which the store had no book under when they entered it
+    private final Set<Integer> newIds = ConcurrentHashMap.newKeySet();
+    //Writes taken so far, and the last of them which is known to be in the store
+    private final AtomicLong published = new AtomicLong();
+    private volatile long flushed;
+
+    //Only wakes threads up, the overlay and the queue do not need it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWrites = lock.newCondition();
+    private final Condition flushDone = lock.newCondition();
+    private volatile RuntimeException failure;
+    private volatile boolean closing;
+    //Writes hold the read lock from checking closing until they are queued
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final Thread writer;
+
+    WriteBehindBookRepository(BookRepository store, int capacity, int batchSize, long maxDelayMillis,
+                              boolean waitForStore, BookMetrics metrics) {
+        this.store = store;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.fullBatch = Math.min(batchSize, capacity);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.waitForStore = waitForStore;
+        this.metrics = metrics;
+        metrics.bindWriteBehindDepth(depth::get);
+        writer = new Thread(this::writeLoop, "book-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public List<Book> findAll() {
+        if (overlay.isEmpty()) {
+            return store.findAll();
+        }
+        List<Book> all = new ArrayList<>();
+        int after = Integer.MIN_VALUE;
+        List<Book> page;
+        do {
+            page = findPage(after, WALK_PAGE_SIZE);
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getBookId();
+            }
+        } while (page.size() == WALK_PAGE_SIZE);
+        return all;
+    }
+
+    //Both sources are ordered by id, so the first limit books of their union are among the first
+    //limit books of each. The overlay is read before the store, so a book which moves from the
+    //overlay to the store in between is still seen.
+    @Override
+    public List<Book> findPage(int afterBookId, int limit) {
+        List<Book> pending = new ArrayList<>();
+        for (Book book : overlay.tailMap(afterBookId, false).values()) {
+            if (pending.size() == limit) {
+                break;
+            }
+            pending.add(book);
+        }
+        if (pending.isEmpty()) {
+            return store.findPage(afterBookId, limit);
+        }
+        List<Book> stored = store.findPage(afterBookId, limit);
+        List<Book> page = new ArrayList<>(Math.min(limit, pending.size() + stored.size()));
+        int p = 0;
+        int s = 0;
+        while (page.size() < limit && (p < pending.size() || s < stored.size())) {
+            if (s == stored.size() || (p < pending.size() && pending.get(p).getBookId() <= stored.get(s).getBookId())) {
+                Book book = pending.get(p++);
+                if (s < stored.size() && stored.get(s).getBookId() == book.getBookId()) {
+                    s++;
+                }
+                page.add(book);
+            } else {
+                page.add(stored.get(s++));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Book findById(int bookId) {
+        Book book = overlay.get(bookId);
+        return book != null ? book : store.findById(bookId);
+    }
+
+    @Override
+    public Book save(Book book) {
+        awaitStore(publish(book));
+        return book;
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        long ticket = 0;
+        for (Book book : books) {
+            ticket = publish(book);
+        }
+        if (!books.isEmpty()) {
+            awaitStore(ticket);
+        }
+    }
+
+    /**
+     * @return book of the overlay, or null when the store holds the latest book of the id
+     */
+    Book findPending(int bookId) {
+        return overlay.get(bookId);
+    }
+
+    //Books waiting in the overlay count when the store does not hold them yet. The store is asked
+    //once when an id enters the overlay, not for every waiting book on every count.
+    @Override
+    public int count() {
+        return store.count() + newIds.size();
+    }
+
+    /**
+     * Writes every waiting book to the store and stops the writer thread, writes which arrive
+     * afterwards go straight to the store
+     */
+    void close() {
+        closing = true;
+        //Waits for writes which saw the buffer open, they may be queued after the writer stopped
+        closeLock.writeLock().lock();
+        closeLock.writeLock().unlock();
+        signal(pendingWrites);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (depth.get() > 0 && failure == null && !writer.isAlive()) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOG.error("Writing {} books to the store failed on shutdown, they are lost", depth.get(), e);
+                failure = e;
+                signal(flushDone);
+            }
+        }
+    }
+
+    private long publish(Book book) {
+        closeLock.readLock().lock();
+        try {
+            if (closing) {
+                store.save(book);
+                return 0;
+            }
+            awaitRoom();
+            int bookId = book.getBookId();
+            //Marked before the book enters the overlay, so the flush which stores it unmarks it
+            if (!overlay.containsKey(bookId) && store.findById(bookId) == null) {
+                newIds.add(bookId);
+            }
+            if (overlay.put(bookId, book) == null) {
+                dirtyIds.add(bookId);
+                if (depth.incrementAndGet() == 1 || waitForStore) {
+                    signal(pendingWrites);
+                }
+            }
+            return published.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void awaitRoom() {
+        if (depth.get() < capacity) {
+            return;
+        }
+        lock.lock();
+        try {
+            pendingWrites.signal();
+            while (depth.get() >= capacity && !closing) {
+                flushDone.await(10, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the write-behind queue", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitStore(long ticket) {
+        if (!waitForStore || ticket == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (flushed < ticket) {
+                if (failure != null) {
+                    throw new IllegalStateException("Books could not be written to the store", failure);
+                }
+                flushDone.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the store", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            boolean stop = closing;
+            if (depth.get() == 0) {
+                if (stop) {
+                    return;
+                }
+                awaitWrites();
+                continue;
+            }
+            //Lets more writes join the batch unless someone waits for it or it is full already
+            if (!waitForStore && !stop && depth.get() < fullBatch) {
+                pause(maxDelayNanos);
+            }
+            try {
+                flush();
+                failure = null;
+            } catch (RuntimeException e) {
+                if (stop) {
+                    LOG.error("Writing {} books to the store failed on shutdown, they are lost", depth.get(), e);
+                    failure = e;
+                    signal(flushDone);
+                    return;
+                }
+                LOG.error("Writing books to the store failed, retrying in {} ms", RETRY_DELAY_MILLIS, e);
+                failure = e;
+                signal(flushDone);
+                pause(TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+
+    //Writes every id queued before the call. Writes published before the call are either among
+    //them or replaced a book of one of them, and the latest book of an id is read from the overlay.
+    private void flush() {
+        long ticket = published.get();
+        int remaining = depth.get();
+        List<Integer> ids = new ArrayList<>(Math.min(remaining, batchSize));
+        List<Book> batch = new ArrayList<>(Math.min(remaining, batchSize));
+        while (remaining > 0) {
+            ids.clear();
+            batch.clear();
+            Iterator<Integer> queued = dirtyIds.iterator();
+            while (queued.hasNext() && ids.size() < Math.min(remaining, batchSize)) {
+                Integer bookId = queued.next();
+                ids.add(bookId);
+                batch.add(overlay.get(bookId));
+            }
+            long start = metrics.start();
+            store.saveAll(batch);
+            metrics.recordWriteBehindFlush(start, batch.size());
+            for (int i = 0; i < ids.size(); i++) {
+                //Taken off the queue only once stored, so a failed batch is tried again
+                dirtyIds.poll();
+                depth.decrementAndGet();
+                Integer bookId = ids.get(i);
+                newIds.remove(bookId);
+                if (!overlay.remove(bookId, batch.get(i))) {
+                    //Written again meanwhile, the newer book still has to reach the store
+                    dirtyIds.add(bookId);
+                    depth.incrementAndGet();
+                }
+            }
+            remaining -= ids.size();
+        }
+        flushed = Math.max(flushed, ticket);
+        signal(flushDone);
+    }
+
+    private void awaitWrites() {
+        lock.lock();
+        try {
+            if (depth.get() == 0 && !closing) {
+                pendingWrites.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void pause(long nanos) {
+        lock.lock();
+        try {
+            long left = nanos;
+            while (left > 0 && !closing && depth.get() < fullBatch) {
+                left = pendingWrites.awaitNanos(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}